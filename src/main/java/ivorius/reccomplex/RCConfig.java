@@ -75,6 +75,16 @@ public class RCConfig
 
     public static boolean postWorldStatus;
 
+    public static long worldDataCacheVolume;
+    public static boolean warmupStructureSelectors;
+    public static int fileLoaderThreads;
+    public static boolean cacheStructureFiles;
+    public static boolean lazyStructureWorldData;
+    public static boolean compileExpressions;
+    public static int retrogenTickBudget;
+    public static boolean bulkBlockWrites;
+    public static boolean deferLootGeneration;
+
     public static boolean memorizeDecoration;
     public static boolean memorizeSaplings;
 
@@ -98,6 +108,8 @@ public class RCConfig
 
     public static float mazePlacementReversesPerRoom;
     public static long mazeTimeout;
+    public static int mazeSolverThreads;
+    public static int mazeSolverAttempts;
 
     public static final Map<String, Boolean> globalToggles = new HashMap<>();
 
@@ -122,6 +134,16 @@ public class RCConfig
 
             postWorldStatus = config.getBoolean("postWorldStatus", CATEGORY_GENERAL, true, "Once per world, post the status of ReC to the admins.");
 
+            worldDataCacheVolume = config.getInt("worldDataCacheVolume", CATEGORY_GENERAL, 16000000, 0, Integer.MAX_VALUE, "Maximum summed up volume (in blocks) of decoded structures that are kept in memory for faster generation. Set to 0 to disable caching.");
+            warmupStructureSelectors = config.getBoolean("warmupStructureSelectors", CATEGORY_GENERAL, true, "Whether structure selectors for all biomes of loaded dimensions should be built in the background after structures are loaded, rather than during the first chunk generation.");
+            cacheStructureFiles = config.getBoolean("cacheStructureFiles", CATEGORY_GENERAL, true, "Whether to keep a cache of structure files so that unchanged structures load without decoding their blocks, which are then read from the structure file once needed.");
+            lazyStructureWorldData = config.getBoolean("lazyStructureWorldData", CATEGORY_GENERAL, false, "Whether the blocks of structures should only be read from their files when needed, and dropped from memory again when it runs low. Saves a lot of memory with many structures, at the cost of a delay when a structure first generates.");
+            compileExpressions = config.getBoolean("compileExpressions", CATEGORY_GENERAL, true, "Whether boolean expressions (e.g. biome, dimension and block matchers) should be compiled when first used, rather than interpreted on every evaluation.");
+            fileLoaderThreads = config.getInt("fileLoaderThreads", CATEGORY_GENERAL, 0, 0, 64, "Number of threads used to read and decode resource files (e.g. structures) at startup. Files are still registered in a fixed order on the main thread. Set to 1 to load everything on the main thread, or 0 to use one thread per processor.");
+            retrogenTickBudget = config.getInt("retrogenTickBudget", CATEGORY_GENERAL, 10, 1, 1000, "Milliseconds per tick that /#retro may spend generating in each dimension. At least one chunk is generated per tick.");
+            bulkBlockWrites = config.getBoolean("bulkBlockWrites", CATEGORY_GENERAL, true, "Whether structures should write simple blocks into chunks directly when no player is watching, fixing up light once per chunk afterwards. Much faster for big structures. Disable if blocks from other mods don't behave after generating.");
+            deferLootGeneration = config.getBoolean("deferLootGeneration", CATEGORY_GENERAL, false, "Whether loot in generated containers should only be rolled once a player opens or breaks them, or they are blown up, rather than while generating. Speeds up generation, but automation (e.g. hoppers) sees containers empty until then. Containers removed in other ways (e.g. by machines from other mods) lose their loot.");
+
             memorizeDecoration = config.getBoolean("memorizeDecoration", CATEGORY_GENERAL, false, "Memorize decoration spawns like trees or mushrooms (for /#whatisthis). Since decoration is so common, it is recommended to use this only for debugging / balancing purposes.");
             memorizeSaplings = config.getBoolean("memorizeSaplings", CATEGORY_GENERAL, false, "Memorize sapling spawns (for /#whatisthis). Since saplings are so common, it is recommended to use this only for debugging / balancing purposes.");
         }
@@ -170,7 +192,9 @@ public class RCConfig
             );
 
             mazePlacementReversesPerRoom = config.getFloat("mazePlacementReversesPerRoom", CATEGORY_BALANCING, 3, -1, 100, "Maximum number of reverses per room the maze generator can do. A higher number results in a better generation success rate, but may freeze the server temporarily.");
-            mazeTimeout = config.getInt("mazeTimeout", CATEGORY_BALANCING, 20000, -1, 600000, "Maze generation timeout, in milliseconds. After the time is over, the maze generation will just give up.");
+            mazeTimeout = config.getInt("mazeTimeout", CATEGORY_BALANCING, 20000, -1, 600000, "Maze generation timeout, in milliseconds. After the time is over, the maze generation will just give up. Set to -1 for no timeout; mazes still give up after 10 minutes then.");
+            mazeSolverThreads = config.getInt("mazeSolverThreads", CATEGORY_BALANCING, 0, 0, 64, "Number of threads shared by all maze generators. Mazes beyond that wait for a free thread, which counts towards their timeout. Set to 0 to use one thread per two processors.");
+            mazeSolverAttempts = config.getInt("mazeSolverAttempts", CATEGORY_BALANCING, 1, 1, 16, "Number of differently seeded attempts to solve each maze in parallel. The first attempt to succeed, in order of their seeds, is used. Higher numbers make mazes fail less often, but use more threads.");
 
             universalTransformer = null;
             Collections.addAll(universalTransformerPresets, config.getStringList("universalTransformerPresets", CATEGORY_BALANCING, new String[0], "Transformer preset names that are gonna be applied to every single generating structure. Use this if you need to enforce specific rules (e.g. \"don't ever spawn wood blocks\" (with a replace transformer)."));
@@ -32,6 +32,7 @@ import ivorius.reccomplex.world.gen.feature.RCWorldgenMonitor;
 import ivorius.reccomplex.world.gen.feature.selector.NaturalStructureSelector;
 import ivorius.reccomplex.world.gen.feature.structure.StructureRegistry;
 import ivorius.reccomplex.world.gen.feature.structure.generic.StructureSaveHandler;
+import ivorius.reccomplex.world.gen.feature.structure.generic.WorldDataCache;
 import ivorius.reccomplex.world.gen.feature.structure.generic.generation.*;
 import ivorius.reccomplex.world.gen.feature.structure.generic.maze.rules.MazeRuleRegistry;
 import ivorius.reccomplex.world.gen.feature.structure.generic.maze.rules.saved.MazeRuleConnect;
@@ -310,6 +311,7 @@ public class RCRegistryHandler
         StructureRegistry.INSTANCE.registerModule(new NaturalGeneration.Cache());
         StructureRegistry.INSTANCE.registerModule(new VanillaDecorationGeneration.Cache());
         StructureRegistry.INSTANCE.registerModule(new VanillaGeneration.Cache());
+        StructureRegistry.INSTANCE.registerModule(WorldDataCache.INSTANCE);
 
         SerializableStringTypeRegistry<GenericPlacer.Factor> placerFactorRegistry = FactorRegistry.INSTANCE.getTypeRegistry();
         placerFactorRegistry.registerType("limit", FactorLimit.class, new FactorLimit.Serializer());
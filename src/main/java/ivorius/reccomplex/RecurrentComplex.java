@@ -21,6 +21,7 @@ import ivorius.mcopts.translation.ServerTranslations;
 import ivorius.reccomplex.world.gen.feature.structure.registry.MCRegistrySpecial;
 import ivorius.reccomplex.world.gen.feature.structure.schematics.SchematicLoader;
 import ivorius.reccomplex.utils.*;
+import ivorius.reccomplex.utils.expression.BlockExpression;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraftforge.common.config.Configuration;
 import net.minecraftforge.event.RegistryEvent;
@@ -170,6 +171,12 @@ public class RecurrentComplex
         SchematicLoader.initializeFolder();
     }
 
+    @EventHandler
+    public void onIdRemap(FMLModIdMappingEvent event)
+    {
+        BlockExpression.invalidateCompiled();
+    }
+
     @EventHandler
     public void onServerStart(FMLServerStartingEvent event)
     {
@@ -81,7 +81,7 @@ public class CommandPaste extends CommandExpecting
         boolean generate = parameters.has("generate");
 
         GenericStructure structure = GenericStructure.createDefaultStructure();
-        structure.worldDataCompound = worldData;
+        structure.setWorldDataCompound(worldData);
 
         // TODO Generate with generation info?
         OperationRegistry.queueOperation(new OperationGenerateStructure(structure, null, transform, pos, generate)
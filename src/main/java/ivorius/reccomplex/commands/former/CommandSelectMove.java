@@ -82,7 +82,7 @@ public class CommandSelectMove extends CommandExpecting
         NBTTagCompound worldDataCompound = worldData.createTagCompound();
 
         GenericStructure structure = GenericStructure.createDefaultStructure();
-        structure.worldDataCompound = worldDataCompound;
+        structure.setWorldDataCompound(worldDataCompound);
 
         BlockPos pos = selectionOwner.getSelection().getLowerCorner();
         for (int i = 0; i < times; i++)
@@ -60,7 +60,7 @@ public class CommandConvertSchematic extends CommandExpecting
 
         GenericStructure from = parameters.get("from").to(RCP::structureFromBlueprint, commandSender).require();
 
-        from.worldDataCompound = CommandExportSchematic.toWorldData(schematicFile).createTagCompound();
+        from.setWorldDataCompound(CommandExportSchematic.toWorldData(schematicFile).createTagCompound());
 
         PacketEditStructureHandler.openEditStructure(player, from, player.getPosition(), structureID, directory);
     }
@@ -62,8 +62,8 @@ public class CommandExportStructure extends CommandExpecting
         SelectionOwner selectionOwner = RCCommands.getSelectionOwner(commandSender, null, true);
         RCCommands.assertSize(commandSender, selectionOwner);
 
-        from.worldDataCompound = IvWorldData.capture(commandSender.getEntityWorld(), selectionOwner.getSelection(), true)
-                .createTagCompound();
+        from.setWorldDataCompound(IvWorldData.capture(commandSender.getEntityWorld(), selectionOwner.getSelection(), true)
+                .createTagCompound());
 
         PacketEditStructureHandler.openEditStructure(player, from, selectionOwner.getSelection().getLowerCorner(), structureID, directory);
     }
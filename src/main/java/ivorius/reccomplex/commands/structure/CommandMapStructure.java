@@ -74,7 +74,7 @@ public class CommandMapStructure extends CommandExpecting
             throw RecurrentComplex.translations.commandException("commands.rcmap.nonvirtual.arguments");
         }
 
-        structure.worldDataCompound = worldData.createTagCompound();
+        structure.setWorldDataCompound(worldData.createTagCompound());
 
         if (directory == null)
             return MapResult.SUCCESS;
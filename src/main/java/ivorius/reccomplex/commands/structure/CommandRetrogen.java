@@ -16,22 +16,32 @@ import ivorius.reccomplex.commands.parameters.expect.RCE;
 import ivorius.reccomplex.commands.parameters.RCP;
 import ivorius.reccomplex.files.RCFiles;
 import ivorius.reccomplex.files.loading.FileSuffixFilter;
+import ivorius.reccomplex.utils.algebra.ExpressionCache;
+import ivorius.reccomplex.utils.expression.ResourceExpression;
 import ivorius.reccomplex.world.gen.feature.WorldGenStructures;
+import ivorius.reccomplex.world.gen.feature.WorldRetrogenData;
 import ivorius.reccomplex.world.gen.feature.structure.Structure;
+import ivorius.reccomplex.world.gen.feature.structure.StructureRegistry;
 import net.minecraft.command.CommandException;
 import net.minecraft.command.ICommandSender;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.math.ChunkPos;
-import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.RegionFile;
 import net.minecraft.world.chunk.storage.RegionFileCache;
+import net.minecraft.world.gen.ChunkProviderServer;
+import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -54,10 +64,10 @@ public class CommandRetrogen extends CommandExpecting
                 .filter(rfc -> rfc.getLeft() != null && rfc.getRight() != null); // Has coords
     }
 
-    public static Stream<ChunkPos> existingChunks(World world)
+    public static Stream<ChunkPos> existingChunks(WorldServer world)
     {
         // Each region is 32x32 chunks
-        File worldDirectory = world.getSaveHandler().getWorldDirectory();
+        File worldDirectory = world.getChunkSaveLocation();
         return existingRegions(worldDirectory)
                 .map(rfc -> new ChunkPos(rfc.getLeft() << 5, rfc.getRight() << 5))
                 .map(rflc -> Pair.of(RegionFileCache.createOrLoadRegionFile(worldDirectory, rflc.x, rflc.z), rflc))
@@ -77,12 +87,105 @@ public class CommandRetrogen extends CommandExpecting
         return world.setRandomSeed(pos.x, pos.z, 0xDEADBEEF);
     }
 
-    public static long retrogen(WorldServer world, Predicate<Structure> structurePredicate)
+    @Nullable
+    public static Predicate<Structure> structurePredicate(@Nullable String expression)
     {
-        return existingChunks(world)
-                .filter(pos -> world.getChunkFromChunkCoords(pos.x, pos.z).isTerrainPopulated())
-                .filter(pos -> WorldGenStructures.decorate(world, getRandom(world, pos), pos, structurePredicate))
-                .count();
+        if (expression == null)
+            return null;
+
+        ResourceExpression matcher = ExpressionCache.of(new ResourceExpression(s -> !s.isEmpty()), expression);
+        return s -> matcher.test(StructureRegistry.INSTANCE.resourceLocation(s));
+    }
+
+    /**
+     * Continues the world's retrogen job, if there is one, for as long as the tick budget allows.
+     */
+    public static void tick(WorldServer world)
+    {
+        WorldRetrogenData data = WorldRetrogenData.get(world);
+        WorldRetrogenData.Job job = data.getJob();
+        if (job == null)
+            return;
+
+        if (job.regions == null)
+            resume(world, job);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RCConfig.retrogenTickBudget);
+        do
+        {
+            ChunkPos pos = nextChunk(world, job);
+            if (pos == null)
+            {
+                data.stop();
+                RecurrentComplex.logger.info(String.format("Finished retrogen in dimension %d: %d chunks, %d with new structures", world.provider.getDimension(), job.processed, job.generated));
+                return;
+            }
+
+            if (retrogen(world, pos, job.structurePredicate))
+                job.generated++;
+            job.processed++;
+            job.sessionProcessed++;
+        }
+        while (System.nanoTime() < deadline);
+
+        data.markDirty();
+    }
+
+    protected static void resume(WorldServer world, WorldRetrogenData.Job job)
+    {
+        job.structurePredicate = structurePredicate(job.expression);
+        job.regions = existingRegions(world.getChunkSaveLocation()).sorted().collect(Collectors.toList());
+
+        Pair<Integer, Integer> cursor = Pair.of(job.regionX, job.regionZ);
+        job.regionIndex = 0;
+        while (job.regionIndex < job.regions.size() && job.regions.get(job.regionIndex).compareTo(cursor) < 0)
+            job.regionIndex++;
+
+        if (job.regionIndex >= job.regions.size() || !job.regions.get(job.regionIndex).equals(cursor))
+            job.chunk = 0; // The region we were in is gone
+    }
+
+    @Nullable
+    protected static ChunkPos nextChunk(WorldServer world, WorldRetrogenData.Job job)
+    {
+        File worldDirectory = world.getChunkSaveLocation();
+
+        //noinspection ConstantConditions
+        for (; job.regionIndex < job.regions.size(); job.regionIndex++, job.chunk = 0)
+        {
+            Pair<Integer, Integer> region = job.regions.get(job.regionIndex);
+            job.regionX = region.getLeft();
+            job.regionZ = region.getRight();
+
+            // Each region is 32x32 chunks
+            RegionFile regionFile = RegionFileCache.createOrLoadRegionFile(worldDirectory, job.regionX << 5, job.regionZ << 5);
+            while (job.chunk < 32 * 32)
+            {
+                int chunk = job.chunk++;
+                if (regionFile.chunkExists(chunk >> 5, chunk & 31))
+                    return new ChunkPos((job.regionX << 5) + (chunk >> 5), (job.regionZ << 5) + (chunk & 31));
+            }
+        }
+
+        return null;
+    }
+
+    public static boolean retrogen(WorldServer world, ChunkPos pos, @Nullable Predicate<Structure> structurePredicate)
+    {
+        boolean generated = world.getChunkFromChunkCoords(pos.x, pos.z).isTerrainPopulated()
+                && WorldGenStructures.decorate(world, getRandom(world, pos), pos, structurePredicate);
+
+        // Let go of the chunks we (probably) loaded, unless someone is looking at them
+        ChunkProviderServer chunkProvider = world.getChunkProvider();
+        for (int x = pos.x - 1; x <= pos.x + 1; x++)
+            for (int z = pos.z - 1; z <= pos.z + 1; z++)
+            {
+                Chunk chunk = chunkProvider.getLoadedChunk(x, z);
+                if (chunk != null && !world.getPlayerChunkMap().contains(x, z))
+                    chunkProvider.queueUnload(chunk);
+            }
+
+        return generated;
     }
 
     @Override
@@ -101,7 +204,9 @@ public class CommandRetrogen extends CommandExpecting
     {
         expect
                 .named("exp").words(RCE::structurePredicate).descriptionU("resource expression: only generate these structures")
-                .named("dimension", "d").then(MCE::dimension);
+                .named("dimension", "d").then(MCE::dimension)
+                .flag("status")
+                .flag("cancel");
     }
 
     @Override
@@ -109,11 +214,40 @@ public class CommandRetrogen extends CommandExpecting
     {
         Parameters parameters = Parameters.of(args, expect()::declare);
 
-        Predicate<Structure> structurePredicate = parameters.get("exp").to(RCP::structurePredicate).optional().orElse(null);
         WorldServer world = parameters.get("dimension").to(MCP.dimension(server, commandSender)).require();
+        WorldRetrogenData data = WorldRetrogenData.get(world);
+        WorldRetrogenData.Job job = data.getJob();
+
+        if (parameters.has("cancel"))
+        {
+            if (job == null)
+                throw RecurrentComplex.translations.commandException("commands.rcretro.none");
+
+            data.stop();
+            commandSender.sendMessage(RecurrentComplex.translations.format("commands.rcretro.cancel", String.valueOf(job.processed), String.valueOf(job.total)));
+            return;
+        }
+
+        if (parameters.has("status"))
+        {
+            if (job == null)
+                throw RecurrentComplex.translations.commandException("commands.rcretro.none");
+
+            long remaining = job.remainingTime();
+            commandSender.sendMessage(RecurrentComplex.translations.format("commands.rcretro.status",
+                    String.valueOf(job.processed), String.valueOf(job.total), String.format("%.1f%%", job.progress() * 100),
+                    String.valueOf(job.generated), remaining >= 0 ? DurationFormatUtils.formatDuration(remaining, "H:mm:ss") : "?"));
+            return;
+        }
+
+        if (job != null)
+            throw RecurrentComplex.translations.commandException("commands.rcretro.running");
+
+        String expression = parameters.get("exp").rest(NaP::join).optional().orElse(null);
+        parameters.get("exp").rest(NaP::join).to(RCP::structurePredicate).optional(); // Validate
 
-        long count = retrogen(world, structurePredicate);
+        job = data.start(expression, existingChunks(world).count());
 
-        commandSender.sendMessage(RecurrentComplex.translations.format("commands.rcretro.count", String.valueOf(count)));
+        commandSender.sendMessage(RecurrentComplex.translations.format("commands.rcretro.start", String.valueOf(job.total)));
     }
 }
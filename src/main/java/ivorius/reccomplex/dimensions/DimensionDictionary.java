@@ -102,6 +102,8 @@ public class DimensionDictionary
 
     private static final Set<String> SET_UNCATEGORIZED = Collections.singleton(UNCATEGORIZED);
 
+    private static volatile int version;
+
     static
     {
         registerType(UNCATEGORIZED);
@@ -129,6 +131,7 @@ public class DimensionDictionary
             dimensionTypes.put(dimensionID, dTypes);
         }
         dTypes.addAll(types);
+        version++;
 
         types.forEach(DimensionDictionary::registerType);
     }
@@ -149,9 +152,21 @@ public class DimensionDictionary
                 dTypes.clear();
             else
                 dTypes.removeAll(types);
+            version++;
         }
     }
 
+    /**
+     * Returns a number that changes every time any dimension's registered types change.
+     * Note that this does not cover {@link Handler}s, since they manage their types themselves.
+     *
+     * @return The current version.
+     */
+    public static int getVersion()
+    {
+        return version;
+    }
+
     /**
      * Registers a dimension type.
      *
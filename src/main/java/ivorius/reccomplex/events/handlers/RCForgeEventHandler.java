@@ -14,12 +14,15 @@ import ivorius.reccomplex.capability.CapabilitySelection;
 import ivorius.reccomplex.capability.RCEntityInfo;
 import ivorius.reccomplex.client.rendering.SelectionRenderer;
 import ivorius.reccomplex.commands.RCCommands;
+import ivorius.reccomplex.commands.structure.CommandRetrogen;
 import ivorius.reccomplex.events.ItemGenerationEvent;
 import ivorius.reccomplex.gui.GuiHider;
 import ivorius.reccomplex.item.ItemInputHandler;
 import ivorius.reccomplex.world.gen.feature.WorldGenStructures;
 import ivorius.reccomplex.world.gen.feature.WorldRandomData;
+import ivorius.reccomplex.world.gen.feature.WorldStructureGenerationData;
 import ivorius.reccomplex.world.gen.feature.structure.StructureRegistry;
+import ivorius.reccomplex.world.storage.loot.LootGenerationHandler;
 import ivorius.reccomplex.world.storage.loot.LootTable;
 import ivorius.reccomplex.world.storage.loot.WeightedItemCollectionRegistry;
 import net.minecraft.client.Minecraft;
@@ -53,7 +56,11 @@ import net.minecraftforge.event.AttachCapabilitiesEvent;
 import net.minecraftforge.event.CommandEvent;
 import net.minecraftforge.event.RegistryEvent;
 import net.minecraftforge.event.entity.EntityJoinWorldEvent;
+import net.minecraftforge.event.entity.player.PlayerInteractEvent;
 import net.minecraftforge.event.terraingen.PopulateChunkEvent;
+import net.minecraftforge.event.world.BlockEvent;
+import net.minecraftforge.event.world.ExplosionEvent;
+import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.client.event.ConfigChangedEvent;
 import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
@@ -186,6 +193,45 @@ public class RCForgeEventHandler
         }
     }
 
+    @SubscribeEvent
+    public void onRightClickBlock(PlayerInteractEvent.RightClickBlock event)
+    {
+        if (event.getWorld() instanceof WorldServer)
+            LootGenerationHandler.generatePendingTags((WorldServer) event.getWorld(), event.getPos());
+    }
+
+    @SubscribeEvent
+    public void onBlockBreak(BlockEvent.BreakEvent event)
+    {
+        if (event.getWorld() instanceof WorldServer)
+            LootGenerationHandler.generatePendingTags((WorldServer) event.getWorld(), event.getPos());
+    }
+
+    @SubscribeEvent
+    public void onExplosionDetonate(ExplosionEvent.Detonate event)
+    {
+        if (event.getWorld() instanceof WorldServer)
+        {
+            for (BlockPos pos : event.getAffectedBlocks())
+                LootGenerationHandler.generatePendingTags((WorldServer) event.getWorld(), event.getWorld().getTileEntity(pos));
+        }
+    }
+
+    @SubscribeEvent
+    public void onWorldTick(TickEvent.WorldTickEvent event)
+    {
+        if (event.side == Side.SERVER && event.phase == TickEvent.Phase.END)
+            CommandRetrogen.tick((WorldServer) event.world);
+    }
+
+    @SubscribeEvent
+    public void onWorldSave(WorldEvent.Save event)
+    {
+        // Regions are saved apart from the main structure data, which only changes with the index
+        if (event.getWorld() instanceof WorldServer)
+            WorldStructureGenerationData.get(event.getWorld()).saveRegions();
+    }
+
     @SubscribeEvent
     public void onConfigChanged(ConfigChangedEvent event)
     {
@@ -19,7 +19,9 @@ import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.Consumer;
 
@@ -28,6 +30,8 @@ import java.util.function.Consumer;
  */
 public class RCFiles
 {
+    private static final Map<Path, FileSystem> jarFileSystems = new HashMap<>();
+
     public static String encodePath(String path)
     {
         return path.replaceAll(" ", "%20");
@@ -97,6 +101,59 @@ public class RCFiles
         return fs.getPath(entryName);
     }
 
+    /**
+     * Reads from a path previously obtained via {@link Path#toUri()}. Paths inside jars are read through one zip file
+     * system per jar that is kept open until {@link #closeJarFileSystems()}. It is private to this class, so that
+     * nobody else can close it while it's being read.
+     */
+    public static <T> T read(URI uri, PathFunction<T> function) throws IOException
+    {
+        if (!uri.getScheme().equals("jar"))
+            return function.apply(Paths.get(uri));
+
+        String ssp = uri.getRawSchemeSpecificPart();
+        int separator = ssp.indexOf("!/");
+        Path jar = Paths.get(URI.create(ssp.substring(0, separator)));
+        String entryName = URI.create(ssp.substring(separator + 1)).getPath();
+
+        try
+        {
+            return function.apply(jarFileSystem(jar).getPath(entryName));
+        }
+        catch (ClosedFileSystemException e)
+        {
+            // Closed by a reload while we were reading, just open it again
+            return function.apply(jarFileSystem(jar).getPath(entryName));
+        }
+    }
+
+    /**
+     * Closes the file systems opened by {@link #read(URI, PathFunction)}. They are opened again once needed.
+     */
+    public static void closeJarFileSystems()
+    {
+        synchronized (jarFileSystems)
+        {
+            jarFileSystems.values().forEach(RCFiles::closeQuietly);
+            jarFileSystems.clear();
+        }
+    }
+
+    protected static FileSystem jarFileSystem(Path jar) throws IOException
+    {
+        synchronized (jarFileSystems)
+        {
+            FileSystem fs = jarFileSystems.get(jar);
+            if (fs == null || !fs.isOpen())
+            {
+                // Opening from a path rather than a URI doesn't register the file system globally
+                fs = FileSystems.newFileSystem(jar, (ClassLoader) null);
+                jarFileSystems.put(jar, fs);
+            }
+            return fs;
+        }
+    }
+
     @Nullable
     public static Path pathFromResourceLocation(ResourceLocation resourceLocation) throws ResourceLocationLoadException
     {
@@ -225,4 +282,10 @@ public class RCFiles
             return location;
         }
     }
+
+    @FunctionalInterface
+    public interface PathFunction<T>
+    {
+        T apply(Path path) throws IOException;
+    }
 }
@@ -20,6 +20,8 @@ import java.util.stream.Collectors;
  */
 public class SimpleLeveledRegistry<S> implements LeveledRegistry<S>
 {
+    private static volatile int changes;
+
     protected LeveledBiMap<String, S> items = new LeveledBiMap<>(LeveledRegistry.Level.values().length);
     protected LeveledBiMap<String, Status> stati = new LeveledBiMap<>(items.levels());
 
@@ -177,6 +179,15 @@ public class SimpleLeveledRegistry<S> implements LeveledRegistry<S>
     private void invalidateActiveCache()
     {
         activeCacheValid = false;
+        changes++;
+    }
+
+    /**
+     * @return A number that changes whenever the contents of any registry change, e.g. to know when derived data is outdated.
+     */
+    public static int changes()
+    {
+        return changes;
     }
 
     public <T extends Module<SimpleLeveledRegistry<S>>> void registerModule(Class<T> type, T cache)
@@ -0,0 +1,71 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.files.loading;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Sums up the time spent in the phases of file loading. Safe to use from multiple threads.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class FileLoadTimings
+{
+    private final LongAdder[] nanos = new LongAdder[Phase.values().length];
+
+    public FileLoadTimings()
+    {
+        for (int i = 0; i < nanos.length; i++)
+            nanos[i] = new LongAdder();
+    }
+
+    public <T> T time(Phase phase, Task<T> task) throws Exception
+    {
+        long start = System.nanoTime();
+
+        try
+        {
+            return task.run();
+        }
+        finally
+        {
+            add(phase, System.nanoTime() - start);
+        }
+    }
+
+    public void add(Phase phase, long nanos)
+    {
+        this.nanos[phase.ordinal()].add(nanos);
+    }
+
+    public long millis(Phase phase)
+    {
+        return TimeUnit.NANOSECONDS.toMillis(nanos[phase.ordinal()].sum());
+    }
+
+    @Override
+    public String toString()
+    {
+        // Worker phases overlap, so these are summed up thread times rather than wall clock times
+        return Arrays.stream(Phase.values())
+                .map(phase -> String.format("%s %dms", phase.name().toLowerCase(), millis(phase)))
+                .collect(Collectors.joining(", "));
+    }
+
+    public enum Phase
+    {
+        IO, INFLATE, NBT, JSON, REGISTER
+    }
+
+    @FunctionalInterface
+    public interface Task<T>
+    {
+        T run() throws Exception;
+    }
+}
@@ -5,6 +5,8 @@
 
 package ivorius.reccomplex.files.loading;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import ivorius.reccomplex.RCConfig;
 import ivorius.reccomplex.RecurrentComplex;
 import ivorius.reccomplex.files.FileHandler;
 import ivorius.reccomplex.files.RCFiles;
@@ -14,10 +16,8 @@ import org.apache.commons.io.FilenameUtils;
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.nio.file.Path;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Created by lukas on 18.09.15.
@@ -95,16 +95,66 @@ public class FileLoader extends FileHandler
     @ParametersAreNonnullByDefault
     public int tryLoadAll(Path path, FileLoadContext context, Collection<String> suffices)
     {
-        int[] added = new int[1];
+        List<Path> files = RCFiles.listFilesRecursively(path, new FileSuffixFilter(suffices), true);
+        // Walk order depends on the file system, but registration order should not
+        files.sort(Comparator.comparing(Path::toString));
 
-        RCFiles.walkFilesRecursively(path, new FileSuffixFilter(suffices), true,
-                file ->
-                {
-                    tryLoad(file, null, context);
-                    added[0]++;
-                });
+        int threads = RCConfig.fileLoaderThreads > 0 ? RCConfig.fileLoaderThreads : Runtime.getRuntime().availableProcessors();
+        if (files.size() <= 1 || threads <= 1)
+        {
+            files.forEach(file -> tryLoad(file, null, context));
+            return files.size();
+        }
+
+        FileLoadTimings timings = new FileLoadTimings();
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ReC File Loader %d").build());
+
+        try
+        {
+            List<Future<FileLoaderAdapter.Prepared>> prepared = new ArrayList<>(files.size());
+            for (Path file : files)
+                prepared.add(executor.submit(() -> prepare(file, null, context, timings)));
+
+            // Register on this thread, in the sorted order
+            for (int i = 0; i < files.size(); i++)
+                finishLoad(files.get(i), prepared.get(i), timings);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        RecurrentComplex.logger.info(String.format("Loaded %d files from %s in %dms (%s)", files.size(), path,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), timings));
+
+        return files.size();
+    }
+
+    protected boolean finishLoad(Path path, Future<FileLoaderAdapter.Prepared> future, FileLoadTimings timings)
+    {
+        try
+        {
+            FileLoaderAdapter.Prepared prepared = future.get();
+            return timings.time(FileLoadTimings.Phase.REGISTER, prepared::load);
+        }
+        catch (ExecutionException e)
+        {
+            RecurrentComplex.logger.error("Error loading resource: " + path, e.getCause());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            RecurrentComplex.logger.error("Interrupted loading resource: " + path, e);
+        }
+        catch (Exception e)
+        {
+            RecurrentComplex.logger.error("Error loading resource: " + path, e);
+        }
 
-        return added[0];
+        return false;
     }
 
     @ParametersAreNonnullByDefault
@@ -167,4 +217,20 @@ public class FileLoader extends FileHandler
 
         return handler != null && handler.loadFile(path, id, context);
     }
+
+    /**
+     * Reads and decodes the file without registering it. Safe to call from other threads.
+     */
+    @ParametersAreNonnullByDefault
+    public FileLoaderAdapter.Prepared prepare(Path path, @Nullable String customID, FileLoadContext context, FileLoadTimings timings) throws Exception
+    {
+        FileLoaderAdapter handler = get(RCFiles.extension(path));
+        String id = defaultName(path, customID);
+
+        if (handler == null)
+            return () -> false;
+
+        FileLoaderAdapter.Prepared prepared = handler.prepareFile(path, id, context, timings);
+        return prepared != null ? prepared : () -> handler.loadFile(path, id, context);
+    }
 }
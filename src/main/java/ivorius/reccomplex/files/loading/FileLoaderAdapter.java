@@ -5,6 +5,7 @@
 
 package ivorius.reccomplex.files.loading;
 
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.nio.file.Path;
 
@@ -33,6 +34,24 @@ public abstract class FileLoaderAdapter
     @ParametersAreNonnullByDefault
     protected abstract boolean loadFile(Path path, String id, FileLoadContext context) throws Exception;
 
+    /**
+     * Does the part of loading that doesn't touch any shared state (reading and decoding), possibly off the main thread.
+     *
+     * @return A task finishing the load on the main thread, or null if the file has to be loaded with loadFile instead.
+     */
+    @Nullable
+    @ParametersAreNonnullByDefault
+    protected Prepared prepareFile(Path path, String id, FileLoadContext context, FileLoadTimings timings) throws Exception
+    {
+        return null;
+    }
+
     @ParametersAreNonnullByDefault
     abstract void clearFiles(LeveledRegistry.Level level);
+
+    @FunctionalInterface
+    public interface Prepared
+    {
+        boolean load() throws Exception;
+    }
 }
@@ -10,6 +10,7 @@ import ivorius.reccomplex.RecurrentComplex;
 import ivorius.reccomplex.events.FileLoadEvent;
 import ivorius.reccomplex.events.RCEventBus;
 
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.nio.file.Path;
 
@@ -30,20 +31,37 @@ public abstract class FileLoaderRegistry<S> extends FileLoaderAdapter
     @ParametersAreNonnullByDefault
     public boolean loadFile(Path path, String id, FileLoadContext context)
     {
-        String domain = context.domain;
-        boolean active = context.active;
+        return register(path, id, context, tryRead(path, id, new FileLoadTimings()));
+    }
 
-        S s = null;
+    @Override
+    @ParametersAreNonnullByDefault
+    protected Prepared prepareFile(Path path, String id, FileLoadContext context, FileLoadTimings timings)
+    {
+        S s = tryRead(path, id, timings);
+        return () -> register(path, id, context, s);
+    }
 
+    @Nullable
+    protected S tryRead(Path path, String id, FileLoadTimings timings)
+    {
         try
         {
-            s = read(path, id);
+            return read(path, id, timings);
         }
         catch (Exception e)
         {
             RecurrentComplex.logger.error("Error reading file: " + path, e);
         }
 
+        return null;
+    }
+
+    protected boolean register(Path path, String id, FileLoadContext context, @Nullable S s)
+    {
+        String domain = context.domain;
+        boolean active = context.active;
+
         if (s != null)
         {
             FileLoadEvent.Pre<S> event = new FileLoadEvent.Pre<>(s, suffix, id, domain, path, active);
@@ -62,6 +80,14 @@ public abstract class FileLoaderRegistry<S> extends FileLoaderAdapter
         return false;
     }
 
+    /**
+     * Reads the file, recording the time spent in each phase. May be called from any thread.
+     */
+    public S read(Path path, String name, FileLoadTimings timings) throws Exception
+    {
+        return read(path, name);
+    }
+
     public abstract S read(Path path, String name) throws Exception;
 
     @Override
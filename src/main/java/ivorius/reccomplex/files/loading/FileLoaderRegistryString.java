@@ -8,7 +8,6 @@ package ivorius.reccomplex.files.loading;
 import com.google.gson.Gson;
 import ivorius.reccomplex.RecurrentComplex;
 
-import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -47,14 +46,20 @@ public class FileLoaderRegistryString<S> extends FileLoaderRegistry<S>
 
     @Override
     public S read(Path path, String name)
+    {
+        return read(path, name, new FileLoadTimings());
+    }
+
+    @Override
+    public S read(Path path, String name, FileLoadTimings timings)
     {
         String resource = null;
 
         try
         {
-            resource = new String(Files.readAllBytes(path));
+            resource = timings.time(FileLoadTimings.Phase.IO, () -> new String(Files.readAllBytes(path)));
         }
-        catch (IOException e)
+        catch (Exception e)
         {
             RecurrentComplex.logger.warn("Resource is damaged: " + name, e);
         }
@@ -64,7 +69,8 @@ public class FileLoaderRegistryString<S> extends FileLoaderRegistry<S>
 
         try
         {
-            return read(resource);
+            String json = resource;
+            return timings.time(FileLoadTimings.Phase.JSON, () -> read(json));
         }
         catch (Exception e)
         {
@@ -6,8 +6,11 @@
 package ivorius.reccomplex.files.loading;
 
 import io.netty.buffer.ByteBuf;
+import ivorius.reccomplex.RCConfig;
 import ivorius.reccomplex.RecurrentComplex;
 import ivorius.reccomplex.files.RCFiles;
+import ivorius.reccomplex.world.gen.feature.structure.StructureRegistry;
+import ivorius.reccomplex.world.gen.feature.structure.generic.StructureSaveHandler;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.ResourceLocation;
 import net.minecraftforge.fml.common.FMLCommonHandler;
@@ -91,6 +94,9 @@ public enum ResourceDirectory
             case MODDED:
             {
                 loader.clearFiles(level);
+                // The old structures were the ones reading from the mod jars
+                RCFiles.closeJarFileSystems();
+
                 for (ModContainer mod : Loader.instance().getModList())
                 {
                     String domain = mod.getModId();
@@ -118,6 +124,11 @@ public enum ResourceDirectory
             default:
                 throw new IllegalArgumentException();
         }
+
+        StructureSaveHandler.INSTANCE.cache.trySave();
+
+        if (RCConfig.warmupStructureSelectors)
+            StructureRegistry.INSTANCE.warmupSelectors();
     }
 
     public static void tryLoadResources(FileLoader loader, LeveledRegistry.Level level, Path path, String domain, boolean create)
@@ -0,0 +1,145 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.nbt;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Stores a set of block positions compactly, as indices into their bounding box.
+ * Values belonging to the positions can be stored alongside, in the order of {@link #indices()}.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class PackedBlockPositions
+{
+    public static final int DENSITY_RESOLUTION = 0xFFFF;
+
+    private final int[] min;
+    private final int[] size;
+    private final int[] indices;
+
+    protected PackedBlockPositions(int[] min, int[] size, int[] indices)
+    {
+        this.min = min;
+        this.size = size;
+        this.indices = indices;
+    }
+
+    public static PackedBlockPositions of(Collection<BlockPos> positions)
+    {
+        int[] min = new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+        int[] max = new int[]{Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+
+        for (BlockPos pos : positions)
+        {
+            min[0] = Math.min(min[0], pos.getX());
+            min[1] = Math.min(min[1], pos.getY());
+            min[2] = Math.min(min[2], pos.getZ());
+            max[0] = Math.max(max[0], pos.getX());
+            max[1] = Math.max(max[1], pos.getY());
+            max[2] = Math.max(max[2], pos.getZ());
+        }
+
+        int[] size = positions.isEmpty() ? new int[3] : new int[]{max[0] - min[0] + 1, max[1] - min[1] + 1, max[2] - min[2] + 1};
+        if (positions.isEmpty())
+            min = new int[3];
+
+        PackedBlockPositions bounds = new PackedBlockPositions(min, size, null);
+        int[] indices = positions.stream().mapToInt(bounds::index).sorted().toArray();
+        return new PackedBlockPositions(min, size, indices);
+    }
+
+    public static PackedBlockPositions readFromNBT(NBTTagCompound compound)
+    {
+        int[] min = compound.getIntArray("min");
+        int[] size = compound.getIntArray("size");
+        return new PackedBlockPositions(min.length == 3 ? min : new int[3], size.length == 3 ? size : new int[3], compound.getIntArray("indices"));
+    }
+
+    public static short quantizeDensity(double density)
+    {
+        return (short) Math.round(MathHelper.clamp(density, 0, 1) * DENSITY_RESOLUTION);
+    }
+
+    public static double dequantizeDensity(short quantized)
+    {
+        return (quantized & 0xFFFF) / (double) DENSITY_RESOLUTION;
+    }
+
+    /**
+     * @return The density as it will be after storing and reading it.
+     */
+    public static double roundDensity(double density)
+    {
+        return dequantizeDensity(quantizeDensity(density));
+    }
+
+    public static byte[] writeDensities(double[] densities)
+    {
+        byte[] bytes = new byte[densities.length * 2];
+        for (int i = 0; i < densities.length; i++)
+        {
+            short quantized = quantizeDensity(densities[i]);
+            bytes[i * 2] = (byte) (quantized >> 8);
+            bytes[i * 2 + 1] = (byte) quantized;
+        }
+        return bytes;
+    }
+
+    public static double[] readDensities(byte[] bytes)
+    {
+        double[] densities = new double[bytes.length / 2];
+        for (int i = 0; i < densities.length; i++)
+            densities[i] = dequantizeDensity((short) ((bytes[i * 2] << 8) | (bytes[i * 2 + 1] & 0xFF)));
+        return densities;
+    }
+
+    public int index(BlockPos pos)
+    {
+        return ((pos.getX() - min[0]) * size[1] + (pos.getY() - min[1])) * size[2] + (pos.getZ() - min[2]);
+    }
+
+    public BlockPos pos(int index)
+    {
+        int z = index % size[2];
+        index /= size[2];
+        int y = index % size[1];
+        int x = index / size[1];
+        return new BlockPos(x + min[0], y + min[1], z + min[2]);
+    }
+
+    public int size()
+    {
+        return indices.length;
+    }
+
+    /**
+     * @return The positions' indices, in ascending order.
+     */
+    public int[] indices()
+    {
+        return indices;
+    }
+
+    public BlockPos get(int i)
+    {
+        return pos(indices[i]);
+    }
+
+    public NBTTagCompound writeToNBT()
+    {
+        NBTTagCompound compound = new NBTTagCompound();
+        compound.setIntArray("min", Arrays.copyOf(min, 3));
+        compound.setIntArray("size", Arrays.copyOf(size, 3));
+        compound.setIntArray("indices", indices);
+        return compound;
+    }
+}
@@ -47,7 +47,7 @@ public class PacketSaveStructureHandler extends SchedulingMessageHandler<PacketS
         GenericStructure genericStructureInfo = message.getStructureInfo();
 
         if (entityInfo != null)
-            genericStructureInfo.worldDataCompound = entityInfo.getCachedExportStructureBlockDataNBT();
+            genericStructureInfo.setWorldDataCompound(entityInfo.getCachedExportStructureBlockDataNBT());
 
         SaveDirectoryData.Result saveDirectoryDataResult = message.getSaveDirectoryDataResult();
 
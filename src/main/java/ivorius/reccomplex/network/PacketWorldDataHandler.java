@@ -78,7 +78,7 @@ public class PacketWorldDataHandler extends SchedulingMessageHandler<PacketWorld
         if (message.worldData != null)
         {
             GenericStructure structure = new GenericStructure();
-            structure.worldDataCompound = message.worldData;
+            structure.setWorldDataCompound(message.worldData);
 
             new StructureGenerator<>(structure)
                     .world(world)
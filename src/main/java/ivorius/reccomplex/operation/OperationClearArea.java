@@ -10,6 +10,7 @@ import ivorius.ivtoolkit.blocks.BlockPositions;
 import ivorius.ivtoolkit.rendering.grid.AreaRenderer;
 import ivorius.reccomplex.client.rendering.SelectionRenderer;
 import ivorius.reccomplex.utils.ItemHandlers;
+import ivorius.reccomplex.world.gen.feature.ChunkSectionWriter;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.GlStateManager;
 import net.minecraft.client.renderer.OpenGlHelper;
@@ -42,12 +43,6 @@ public class OperationClearArea implements Operation
         this.sourceArea = sourceArea;
     }
 
-    public static void setBlockToAirClean(World world, BlockPos pos)
-    {
-        emptyOut(world, pos);
-        world.setBlockState(pos, Blocks.AIR.getDefaultState(), 2);
-    }
-
     public static void emptyOut(World world, BlockPos pos)
     {
         TileEntity tileEntity = world.getTileEntity(pos);
@@ -80,8 +75,16 @@ public class OperationClearArea implements Operation
     public void perform(WorldServer world)
     {
         if (sourceArea != null)
-            for (BlockPos coord : sourceArea)
-                setBlockToAirClean(world, coord);
+        {
+            try (ChunkSectionWriter writer = new ChunkSectionWriter(world))
+            {
+                for (BlockPos coord : sourceArea)
+                {
+                    emptyOut(world, coord);
+                    writer.setBlockState(coord, Blocks.AIR.getDefaultState(), 2);
+                }
+            }
+        }
     }
 
     @SideOnly(Side.CLIENT)
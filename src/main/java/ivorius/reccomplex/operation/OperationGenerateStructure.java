@@ -156,7 +156,7 @@ public class OperationGenerateStructure implements Operation
     public void writeToNBT(NBTTagCompound compound)
     {
         compound.setString("structureInfo", StructureSaveHandler.INSTANCE.toJSON(structure));
-        compound.setTag("structureData", structure.worldDataCompound);
+        compound.setTag("structureData", structure.worldDataCompound());
 
         RCAxisAlignedTransform.write(compound, transform, "rotation", "mirrorX");
 
@@ -128,7 +128,7 @@ public class OperationRegistry
                     dummyWorldData.blockCollection.setBlockState(pos, (dummyWorldData.blockCollection.getBlockState(pos).isNormalCube() ? Blocks.STONE : Blocks.AIR).getDefaultState());
 
                 GenericStructure dummyStructure = new GenericStructure();
-                dummyStructure.worldDataCompound = dummyWorldData.createTagCompound();
+                dummyStructure.setWorldDataCompound(dummyWorldData.createTagCompound());
                 return writeOperation(genStructure.dummy(dummyStructure));
             }
             else if (level == 2)
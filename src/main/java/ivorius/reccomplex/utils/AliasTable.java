@@ -0,0 +1,133 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.utils;
+
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.array.TDoubleArrayList;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Weighted random selection in O(1) per pick, using Vose's alias method.
+ * Like WeightedSelector, every pick consumes exactly one random double.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class AliasTable<T>
+{
+    private final Object[] values;
+    private final double[] probabilities;
+    private final int[] aliases;
+    private final double totalWeight;
+
+    protected AliasTable(List<T> values, TDoubleList weights)
+    {
+        int size = values.size();
+
+        this.values = values.toArray();
+        this.probabilities = new double[size];
+        this.aliases = new int[size];
+        this.totalWeight = weights.sum();
+
+        if (size == 0 || totalWeight <= 0)
+            return;
+
+        double[] scaled = new double[size];
+        int[] small = new int[size], large = new int[size];
+        int smallSize = 0, largeSize = 0;
+
+        for (int i = 0; i < size; i++)
+        {
+            scaled[i] = weights.get(i) * size / totalWeight;
+            if (scaled[i] < 1)
+                small[smallSize++] = i;
+            else
+                large[largeSize++] = i;
+        }
+
+        while (smallSize > 0 && largeSize > 0)
+        {
+            int less = small[--smallSize];
+            int more = large[--largeSize];
+
+            probabilities[less] = scaled[less];
+            aliases[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1)
+                small[smallSize++] = more;
+            else
+                large[largeSize++] = more;
+        }
+
+        // Leftovers are 1 up to rounding errors
+        while (largeSize > 0)
+            probabilities[large[--largeSize]] = 1;
+        while (smallSize > 0)
+            probabilities[small[--smallSize]] = 1;
+    }
+
+    public static <T> AliasTable<T> of(Collection<T> items, ToDoubleFunction<T> weight)
+    {
+        Builder<T> builder = new Builder<>();
+        items.forEach(item -> builder.add(weight.applyAsDouble(item), item));
+        return builder.build();
+    }
+
+    public int size()
+    {
+        return values.length;
+    }
+
+    public boolean isEmpty()
+    {
+        return totalWeight <= 0;
+    }
+
+    public double totalWeight()
+    {
+        return totalWeight;
+    }
+
+    @Nullable
+    public T select(Random random)
+    {
+        if (isEmpty())
+            return null;
+
+        double pick = random.nextDouble() * values.length;
+        int index = Math.min((int) pick, values.length - 1);
+
+        //noinspection unchecked
+        return (T) values[pick - index < probabilities[index] ? index : aliases[index]];
+    }
+
+    public static class Builder<T>
+    {
+        private final List<T> values = new ArrayList<>();
+        private final TDoubleList weights = new TDoubleArrayList();
+
+        public Builder<T> add(double weight, T value)
+        {
+            if (weight > 0)
+            {
+                values.add(value);
+                weights.add(weight);
+            }
+            return this;
+        }
+
+        public AliasTable<T> build()
+        {
+            return new AliasTable<>(values, weights);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.utils;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Spatial index mapping chunk cells (packed into longs) to small arrays of values.
+ * Values covering an area are referenced from every cell they cover; area queries return each value only once.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class ChunkGrid<T>
+{
+    private static final Object[] EMPTY = new Object[0];
+
+    private final Long2ObjectMap<Object[]> cells = new Long2ObjectOpenHashMap<>();
+
+    public static long key(int x, int z)
+    {
+        return ChunkPos.asLong(x, z);
+    }
+
+    public void add(T value, int minX, int minZ, int maxX, int maxZ)
+    {
+        for (int x = minX; x <= maxX; x++)
+            for (int z = minZ; z <= maxZ; z++)
+            {
+                long key = key(x, z);
+                Object[] cell = cells.get(key);
+
+                if (cell == null)
+                    cells.put(key, new Object[]{value});
+                else
+                {
+                    Object[] added = Arrays.copyOf(cell, cell.length + 1);
+                    added[cell.length] = value;
+                    cells.put(key, added);
+                }
+            }
+    }
+
+    public void remove(T value, int minX, int minZ, int maxX, int maxZ)
+    {
+        for (int x = minX; x <= maxX; x++)
+            for (int z = minZ; z <= maxZ; z++)
+            {
+                long key = key(x, z);
+                Object[] cell = cells.get(key);
+
+                if (cell == null)
+                    continue;
+
+                int index = indexOf(cell, value);
+                if (index < 0)
+                    continue;
+
+                if (cell.length == 1)
+                    cells.remove(key);
+                else
+                {
+                    Object[] removed = new Object[cell.length - 1];
+                    System.arraycopy(cell, 0, removed, 0, index);
+                    System.arraycopy(cell, index + 1, removed, index, cell.length - index - 1);
+                    cells.put(key, removed);
+                }
+            }
+    }
+
+    private static int indexOf(Object[] cell, Object value)
+    {
+        for (int i = 0; i < cell.length; i++)
+            if (cell[i] == value)
+                return i;
+        return -1;
+    }
+
+    public Stream<T> get(int x, int z)
+    {
+        Object[] cell = cells.get(key(x, z));
+        //noinspection unchecked
+        return Arrays.stream(cell != null ? cell : EMPTY).map(o -> (T) o);
+    }
+
+    /**
+     * Visits every value with a cell in the area, exactly once, until the predicate returns false.
+     *
+     * @return false if the visitor aborted
+     */
+    public boolean visit(int minX, int minZ, int maxX, int maxZ, Predicate<T> visitor)
+    {
+        boolean singleCell = minX == maxX && minZ == maxZ;
+        Set<Object> visited = singleCell ? null : Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (int x = minX; x <= maxX; x++)
+            for (int z = minZ; z <= maxZ; z++)
+            {
+                Object[] cell = cells.get(key(x, z));
+                if (cell == null)
+                    continue;
+
+                for (Object o : cell)
+                {
+                    //noinspection unchecked
+                    if ((visited == null || visited.add(o)) && !visitor.test((T) o))
+                        return false;
+                }
+            }
+
+        return true;
+    }
+
+    public Stream<T> get(int minX, int minZ, int maxX, int maxZ)
+    {
+        Stream.Builder<T> builder = Stream.builder();
+        visit(minX, minZ, maxX, maxZ, t ->
+        {
+            builder.accept(t);
+            return true;
+        });
+        return builder.build();
+    }
+
+    public int cellCount()
+    {
+        return cells.size();
+    }
+
+    public void clear()
+    {
+        cells.clear();
+    }
+}
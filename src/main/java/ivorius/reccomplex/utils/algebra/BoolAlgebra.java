@@ -6,6 +6,7 @@
 package ivorius.reccomplex.utils.algebra;
 
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Created by lukas on 23.02.15.
@@ -16,38 +17,17 @@ public abstract class BoolAlgebra
 
     public static Algebras.Unary<Boolean> not(String symbol)
     {
-        return new Algebras.Unary<Boolean>(5f, Algebras.Unary.Notation.PREFIX, symbol)
-        {
-            @Override
-            public <V> Boolean evaluate(Function<V, Boolean> variableEvaluator, Algebra.Expression<Boolean, V> expression)
-            {
-                return !expression.evaluate(variableEvaluator);
-            }
-        };
+        return new Not(symbol);
     }
 
     public static Algebras.Infix<Boolean> and(String symbol)
     {
-        return new Algebras.Infix<Boolean>(4f, symbol)
-        {
-            @Override
-            public <V> Boolean evaluate(Function<V, Boolean> variableEvaluator, Algebra.Expression<Boolean, V> left, Algebra.Expression<Boolean, V> right)
-            {
-                return left.evaluate(variableEvaluator) && right.evaluate(variableEvaluator);
-            }
-        };
+        return new And(symbol);
     }
 
     public static Algebras.Infix<Boolean> or(String symbol)
     {
-        return new Algebras.Infix<Boolean>(4f, symbol)
-        {
-            @Override
-            public <V> Boolean evaluate(Function<V, Boolean> variableEvaluator, Algebra.Expression<Boolean, V> left, Algebra.Expression<Boolean, V> right)
-            {
-                return left.evaluate(variableEvaluator) || right.evaluate(variableEvaluator);
-            }
-        };
+        return new Or(symbol);
     }
 
     public static Algebras.Infix<Boolean> equals(String symbol)
@@ -76,20 +56,129 @@ public abstract class BoolAlgebra
 
     public static Algebra.Operator<Boolean> conditional(String left, String right)
     {
-        return new Algebra.Operator<Boolean>(2f, true, true, left, right)
-        {
-            @Override
-            public <V> Boolean evaluate(Function<V, Boolean> variableEvaluator, Algebra.Expression<Boolean, V>[] expressions)
-            {
-                return expressions[0].evaluate(variableEvaluator)
-                        ? expressions[1].evaluate(variableEvaluator)
-                        : expressions[2].evaluate(variableEvaluator);
-            }
-        };
+        return new Conditional(left, right);
     }
 
     public static Algebras.Parentheses<Boolean> parentheses(String left, String right)
     {
         return new Algebras.Parentheses<>(1f, left, right);
     }
+
+    /**
+     * An operator that can be compiled by the {@link BoolExpressionCompiler}.
+     */
+    public interface Compilable
+    {
+        <A> Predicate<A> compile(Predicate<A>[] arguments);
+    }
+
+    public static class Not extends Algebras.Unary<Boolean> implements Compilable
+    {
+        public Not(String symbol)
+        {
+            super(5f, Algebras.Unary.Notation.PREFIX, symbol);
+        }
+
+        @Override
+        public <V> Boolean evaluate(Function<V, Boolean> variableEvaluator, Algebra.Expression<Boolean, V> expression)
+        {
+            return !expression.evaluate(variableEvaluator);
+        }
+
+        @Override
+        public <A> Predicate<A> compile(Predicate<A>[] arguments)
+        {
+            Predicate<A> expression = arguments[0];
+
+            if (BoolExpressionCompiler.isConstant(expression))
+                return BoolExpressionCompiler.constant(BoolExpressionCompiler.isFalse(expression));
+
+            return a -> !expression.test(a);
+        }
+    }
+
+    public static class And extends Algebras.Infix<Boolean> implements Compilable
+    {
+        public And(String symbol)
+        {
+            super(4f, symbol);
+        }
+
+        @Override
+        public <V> Boolean evaluate(Function<V, Boolean> variableEvaluator, Algebra.Expression<Boolean, V> left, Algebra.Expression<Boolean, V> right)
+        {
+            return left.evaluate(variableEvaluator) && right.evaluate(variableEvaluator);
+        }
+
+        @Override
+        public <A> Predicate<A> compile(Predicate<A>[] arguments)
+        {
+            Predicate<A> left = arguments[0], right = arguments[1];
+
+            if (BoolExpressionCompiler.isFalse(left) || BoolExpressionCompiler.isFalse(right))
+                return BoolExpressionCompiler.constant(false);
+            else if (BoolExpressionCompiler.isTrue(left))
+                return right;
+            else if (BoolExpressionCompiler.isTrue(right))
+                return left;
+
+            return a -> left.test(a) && right.test(a);
+        }
+    }
+
+    public static class Or extends Algebras.Infix<Boolean> implements Compilable
+    {
+        public Or(String symbol)
+        {
+            super(4f, symbol);
+        }
+
+        @Override
+        public <V> Boolean evaluate(Function<V, Boolean> variableEvaluator, Algebra.Expression<Boolean, V> left, Algebra.Expression<Boolean, V> right)
+        {
+            return left.evaluate(variableEvaluator) || right.evaluate(variableEvaluator);
+        }
+
+        @Override
+        public <A> Predicate<A> compile(Predicate<A>[] arguments)
+        {
+            Predicate<A> left = arguments[0], right = arguments[1];
+
+            if (BoolExpressionCompiler.isTrue(left) || BoolExpressionCompiler.isTrue(right))
+                return BoolExpressionCompiler.constant(true);
+            else if (BoolExpressionCompiler.isFalse(left))
+                return right;
+            else if (BoolExpressionCompiler.isFalse(right))
+                return left;
+
+            return a -> left.test(a) || right.test(a);
+        }
+    }
+
+    public static class Conditional extends Algebra.Operator<Boolean> implements Compilable
+    {
+        public Conditional(String left, String right)
+        {
+            super(2f, true, true, left, right);
+        }
+
+        @Override
+        public <V> Boolean evaluate(Function<V, Boolean> variableEvaluator, Algebra.Expression<Boolean, V>[] expressions)
+        {
+            return expressions[0].evaluate(variableEvaluator)
+                    ? expressions[1].evaluate(variableEvaluator)
+                    : expressions[2].evaluate(variableEvaluator);
+        }
+
+        @Override
+        public <A> Predicate<A> compile(Predicate<A>[] arguments)
+        {
+            Predicate<A> condition = arguments[0], ifTrue = arguments[1], ifFalse = arguments[2];
+
+            if (BoolExpressionCompiler.isConstant(condition))
+                return BoolExpressionCompiler.isTrue(condition) ? ifTrue : ifFalse;
+
+            return a -> condition.test(a) ? ifTrue.test(a) : ifFalse.test(a);
+        }
+    }
 }
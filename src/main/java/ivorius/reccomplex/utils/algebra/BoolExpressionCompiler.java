@@ -0,0 +1,72 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.utils.algebra;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Turns parsed boolean expressions into a tree of predicates, folding constants along the way.
+ * Operators need to implement {@link BoolAlgebra.Compilable} to be compiled, others are interpreted as before.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class BoolExpressionCompiler
+{
+    private static final Predicate<Object> TRUE = a -> true;
+    private static final Predicate<Object> FALSE = a -> false;
+
+    public static <A> Predicate<A> constant(boolean value)
+    {
+        //noinspection unchecked
+        return (Predicate<A>) (value ? TRUE : FALSE);
+    }
+
+    public static boolean isTrue(Predicate<?> predicate)
+    {
+        return predicate == TRUE;
+    }
+
+    public static boolean isFalse(Predicate<?> predicate)
+    {
+        return predicate == FALSE;
+    }
+
+    public static boolean isConstant(Predicate<?> predicate)
+    {
+        return predicate == TRUE || predicate == FALSE;
+    }
+
+    /**
+     * @param variables   Compiles a variable, e.g. to a constant if it doesn't depend on the argument.
+     * @param interpreter Creates the variable evaluator for an argument, for parts of the expression that can't be compiled.
+     */
+    public static <V, A> Predicate<A> compile(Algebra.Expression<Boolean, V> expression, Function<Algebra.Variable<Boolean, V>, Predicate<A>> variables, Function<A, Function<V, Boolean>> interpreter)
+    {
+        if (expression instanceof Algebra.Constant)
+            return constant(((Algebra.Constant<Boolean, V>) expression).value);
+        else if (expression instanceof Algebra.Variable)
+            return variables.apply((Algebra.Variable<Boolean, V>) expression);
+        else if (expression instanceof Algebra.Operation)
+        {
+            Algebra.Operation<Boolean, V> operation = (Algebra.Operation<Boolean, V>) expression;
+            Algebra.Operator<Boolean> operator = operation.operator;
+
+            if (operator instanceof BoolAlgebra.Compilable || operator instanceof Algebras.Parentheses)
+            {
+                @SuppressWarnings("unchecked") Predicate<A>[] arguments = new Predicate[operation.expressions.length];
+                for (int i = 0; i < arguments.length; i++)
+                    arguments[i] = compile(operation.expressions[i], variables, interpreter);
+
+                return operator instanceof Algebras.Parentheses
+                        ? arguments[0]
+                        : ((BoolAlgebra.Compilable) operator).compile(arguments);
+            }
+        }
+
+        return a -> expression.evaluate(interpreter.apply(a));
+    }
+}
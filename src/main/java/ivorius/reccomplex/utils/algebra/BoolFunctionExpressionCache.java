@@ -17,6 +17,8 @@ public class BoolFunctionExpressionCache<A, U> extends FunctionExpressionCache<B
 {
     public static final String GLOBAL_PREFIX = "global:";
 
+    private volatile Compiled<A> compiled;
+
     public BoolFunctionExpressionCache(Algebra<Boolean> algebra)
     {
         super(algebra);
@@ -38,12 +40,55 @@ public class BoolFunctionExpressionCache<A, U> extends FunctionExpressionCache<B
         addType(new VariableTypeGlobal(GLOBAL_PREFIX, ""));
     }
 
+    @Override
+    public Boolean evaluate(SupplierCache<A> a)
+    {
+        Algebra.Expression<Boolean, ?> parsed = this.parsedExpression;
+        if (!RCConfig.compileExpressions || parsed == null)
+            return super.evaluate(a);
+
+        // Compiled from another expression if it was re-parsed in the meantime
+        Compiled<A> compiled = this.compiled;
+        if (compiled == null || compiled.source != parsed)
+            this.compiled = compiled = new Compiled<>(parsed, compile(parsed));
+
+        return compiled.predicate.test(a);
+    }
+
+    protected Predicate<SupplierCache<A>> compile(Algebra.Expression<Boolean, ?> parsed)
+    {
+        @SuppressWarnings("unchecked") Algebra.Expression<Boolean, Function<SupplierCache<? super A>, Boolean>> expression = (Algebra.Expression<Boolean, Function<SupplierCache<? super A>, Boolean>>) parsed;
+
+        return BoolExpressionCompiler.compile(expression, variable ->
+        {
+            VariableType<Boolean, ? super A, ? super U> type = type(variable.identifier);
+            Boolean constant = type != null ? type.constantValue(variable.identifier.substring(type.prefix.length())) : null;
+            if (constant != null)
+                return BoolExpressionCompiler.constant(constant);
+
+            Function<SupplierCache<? super A>, Boolean> function = variable.value;
+            return function::apply;
+        }, a -> fun -> fun.apply(a));
+    }
+
     @Override
     public boolean test(A a)
     {
         return evaluate(a);
     }
 
+    protected static class Compiled<A>
+    {
+        public final Algebra.Expression<Boolean, ?> source;
+        public final Predicate<SupplierCache<A>> predicate;
+
+        public Compiled(Algebra.Expression<Boolean, ?> source, Predicate<SupplierCache<A>> predicate)
+        {
+            this.source = source;
+            this.predicate = predicate;
+        }
+    }
+
     public static class VariableTypeGlobal extends VariableType<Boolean, Object, Object>
     {
         public VariableTypeGlobal(String prefix, String suffix)
@@ -163,6 +163,13 @@ public class FunctionExpressionCache<T, A, U> extends ExpressionCache<T>
             return parent.validity(var, u);
         }
 
+        @Nullable
+        @Override
+        public T constantValue(String var)
+        {
+            return parent.constantValue(var);
+        }
+
         @Override
         public String getRepresentation(String var, String prefix, String suffix, U u)
         {
@@ -195,6 +202,15 @@ public class FunctionExpressionCache<T, A, U> extends ExpressionCache<T>
 
         public abstract Validity validity(String var, U u);
 
+        /**
+         * @return The variable's value if it doesn't depend on the argument, so it can be folded when compiling; otherwise null.
+         */
+        @Nullable
+        public T constantValue(String var)
+        {
+            return null;
+        }
+
         public TextFormatting getRepresentation(Validity validity)
         {
             return validity == Validity.KNOWN ? TextFormatting.GREEN
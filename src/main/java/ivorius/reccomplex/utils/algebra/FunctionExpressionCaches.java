@@ -25,6 +25,12 @@ public class FunctionExpressionCaches
                 return o -> val;
             }
 
+            @Override
+            public T constantValue(String var)
+            {
+                return val;
+            }
+
             @Override
             public FunctionExpressionCache.Validity validity(String var, Object o)
             {
@@ -43,6 +49,12 @@ public class FunctionExpressionCaches
                 return o -> val;
             }
 
+            @Override
+            public T constantValue(String var)
+            {
+                return val;
+            }
+
             @Override
             public FunctionExpressionCache.Validity validity(String var, Object o)
             {
@@ -7,6 +7,8 @@ package ivorius.reccomplex.utils.expression;
 
 import com.google.common.base.Splitter;
 import com.google.common.primitives.Ints;
+import it.unimi.dsi.fastutil.ints.Int2ByteMap;
+import it.unimi.dsi.fastutil.ints.Int2ByteOpenHashMap;
 import ivorius.ivtoolkit.blocks.BlockStates;
 import ivorius.ivtoolkit.gui.IntegerRange;
 import ivorius.ivtoolkit.tools.MCRegistry;
@@ -22,6 +24,7 @@ import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.text.TextFormatting;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
@@ -35,8 +38,19 @@ public class BlockExpression extends BoolFunctionExpressionCache<IBlockState, Ob
     public static final String METADATA_PREFIX = "metadata=";
     public static final String PROPERTY_PREFIX = "property[";
 
+    /**
+     * Number of interpreted evaluations after which an expression starts remembering its results per block state.
+     */
+    public static final int COMPILE_THRESHOLD = 64;
+
+    private static volatile int registryVersion;
+
     public final MCRegistry registry;
 
+    private volatile Compiled compiled;
+    private boolean compilable;
+    private int evaluations;
+
     public BlockExpression(MCRegistry registry)
     {
         super(RCBoolAlgebra.algebra(), true, TextFormatting.GREEN + "Any Block");
@@ -48,6 +62,89 @@ public class BlockExpression extends BoolFunctionExpressionCache<IBlockState, Ob
         addTypes(new PropertyVariableType(PROPERTY_PREFIX, ""), t -> t.alias("$[", ""));
     }
 
+    /**
+     * Invalidates all compiled expressions, e.g. after block state ids have been remapped.
+     */
+    public static void invalidateCompiled()
+    {
+        registryVersion++;
+    }
+
+    @Override
+    protected void parseExpression()
+    {
+        super.parseExpression();
+
+        compiled = null;
+        evaluations = 0;
+        // Globals can change at any time, so they can't be compiled
+        compilable = parsedExpression != null && parsedExpression.walkVariables(v -> !(type(v.identifier) instanceof VariableTypeGlobal));
+    }
+
+    @Override
+    public Boolean evaluate(IBlockState state)
+    {
+        Compiled compiled = compiled();
+        int id = compiled != null ? Block.BLOCK_STATE_IDS.get(state) : -1;
+
+        if (id >= 0)
+        {
+            byte result = compiled.get(id);
+            if (result == Compiled.UNKNOWN)
+                result = compile(compiled, state.getBlock(), id);
+
+            if (result != Compiled.AMBIGUOUS)
+                return result == Compiled.MATCH;
+        }
+
+        return super.evaluate(state);
+    }
+
+    protected Compiled compiled()
+    {
+        Compiled compiled = this.compiled;
+
+        if (compiled != null && compiled.registryVersion == registryVersion)
+            return compiled;
+        else if (!compilable || evaluations++ < COMPILE_THRESHOLD)
+            return null;
+
+        return this.compiled = new Compiled(registryVersion);
+    }
+
+    /**
+     * Evaluates all states of the block at once, since they may share ids.
+     *
+     * @return The result for the given id.
+     */
+    protected byte compile(Compiled compiled, Block block, int id)
+    {
+        Int2ByteMap results = new Int2ByteOpenHashMap();
+        results.defaultReturnValue(Compiled.UNKNOWN);
+
+        for (IBlockState state : block.getBlockState().getValidStates())
+        {
+            int stateID = Block.BLOCK_STATE_IDS.get(state);
+            if (stateID < 0)
+                continue;
+
+            byte result = super.evaluate(state) ? Compiled.MATCH : Compiled.NO_MATCH;
+            byte previous = results.get(stateID);
+
+            // Ids only work if all states sharing them agree (e.g. fence connections)
+            results.put(stateID, previous == Compiled.UNKNOWN || previous == result ? result : Compiled.AMBIGUOUS);
+        }
+
+        // The state isn't among the block's valid states, don't trust its id
+        if (!results.containsKey(id))
+            results.put(id, Compiled.AMBIGUOUS);
+
+        for (Int2ByteMap.Entry entry : results.int2ByteEntrySet())
+            compiled.set(entry.getIntKey(), entry.getByteValue());
+
+        return results.get(id);
+    }
+
     public static String of(MCRegistry registry, Block block)
     {
         return registry.idFromBlock(block).toString();
@@ -63,6 +160,39 @@ public class BlockExpression extends BoolFunctionExpressionCache<IBlockState, Ob
         return String.format("%s & %s%d-%d", registry.idFromBlock(block), METADATA_PREFIX, range.min, range.max);
     }
 
+    /**
+     * Results per block state id, filled in block by block as states are evaluated.
+     */
+    protected static class Compiled
+    {
+        public static final byte UNKNOWN = 0;
+        public static final byte NO_MATCH = 1;
+        public static final byte MATCH = 2;
+        public static final byte AMBIGUOUS = 3;
+
+        public final int registryVersion;
+        private volatile byte[] results = new byte[0];
+
+        public Compiled(int registryVersion)
+        {
+            this.registryVersion = registryVersion;
+        }
+
+        public byte get(int id)
+        {
+            byte[] results = this.results;
+            return id < results.length ? results[id] : UNKNOWN;
+        }
+
+        public synchronized void set(int id, byte result)
+        {
+            byte[] results = this.results;
+            if (id >= results.length)
+                this.results = results = Arrays.copyOf(results, Math.max(id + 1, results.length * 2));
+            results[id] = result;
+        }
+    }
+
     public class IDVariableType extends VariableType<Boolean, IBlockState, Object>
     {
         public MCRegistry registry;
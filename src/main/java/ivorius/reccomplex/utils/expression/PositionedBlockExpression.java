@@ -8,6 +8,7 @@ package ivorius.reccomplex.utils.expression;
 import ivorius.ivtoolkit.tools.MCRegistry;
 import ivorius.reccomplex.utils.RCBlockLogic;
 import ivorius.reccomplex.utils.algebra.BoolFunctionExpressionCache;
+import ivorius.reccomplex.utils.algebra.ExpressionCache;
 import ivorius.reccomplex.utils.algebra.RCBoolAlgebra;
 import ivorius.reccomplex.utils.algebra.SupplierCache;
 import ivorius.ivtoolkit.world.MockWorld;
@@ -94,6 +95,14 @@ public class PositionedBlockExpression extends BoolFunctionExpressionCache<Posit
             return argument.state;
         }
 
+        @Override
+        public Function<SupplierCache<Argument>, Boolean> parse(String var) throws ParseException
+        {
+            // Block expressions only depend on the state, so let them use their compiled masks
+            BlockExpression c = ExpressionCache.of(createCache(), var);
+            return a -> c.evaluate(a.get().state);
+        }
+
         @Override
         public BlockExpression createCache()
         {
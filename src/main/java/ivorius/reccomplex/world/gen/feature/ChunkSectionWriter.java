@@ -0,0 +1,326 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.world.gen.feature;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import ivorius.reccomplex.RCConfig;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sets many blocks at once by writing them into the chunk sections directly, skipping the per-block light checks,
+ * height map updates and neighbor notifications of {@link World#setBlockState(BlockPos, IBlockState, int)}.
+ * Height maps and light are fixed up when the writer is closed: Columns that were written to are relit from above,
+ * and light is checked where it can spread in or out, i.e. at the border of what was written and where blocks start
+ * or stop emitting light.
+ * <p>
+ * Only done when nobody can tell the difference, i.e. for flag 2, in chunks no player is watching,
+ * and for blocks without tile entities or hooks for being added or broken. Everything else is set through the world.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class ChunkSectionWriter implements AutoCloseable
+{
+    private static final Map<Class<?>, Boolean> plainBlocks = new ConcurrentHashMap<>();
+
+    protected final World world;
+    protected final boolean direct;
+    protected final boolean relightColumns;
+
+    protected final Long2ObjectMap<Entry> chunks = new Long2ObjectOpenHashMap<>();
+    protected Entry last;
+
+    protected final LongSet emissionChanges = new LongOpenHashSet();
+    protected final LongSet opacityChanges = new LongOpenHashSet();
+
+    /**
+     * @param relightColumns Whether to fix height maps and sky light from above, false if someone else does,
+     *                       e.g. a {@link HeightMapFreezer} melting afterwards.
+     */
+    public ChunkSectionWriter(World world, boolean relightColumns)
+    {
+        this(world, RCConfig.bulkBlockWrites && world instanceof WorldServer, relightColumns);
+    }
+
+    public ChunkSectionWriter(World world)
+    {
+        this(world, true);
+    }
+
+    protected ChunkSectionWriter(World world, boolean direct, boolean relightColumns)
+    {
+        this.world = world;
+        this.direct = direct;
+        this.relightColumns = relightColumns;
+    }
+
+    /**
+     * @return Whether the block's class adds nothing to being placed or broken, so it can be written directly.
+     */
+    public static boolean isPlain(Block block)
+    {
+        return plainBlocks.computeIfAbsent(block.getClass(), clazz ->
+        {
+            for (Class<?> c = clazz; c != null && c != Block.class; c = c.getSuperclass())
+            {
+                if (declares(c, new String[]{"onBlockAdded", "func_176213_c"}, World.class, BlockPos.class, IBlockState.class)
+                        || declares(c, new String[]{"breakBlock", "func_180663_b"}, World.class, BlockPos.class, IBlockState.class))
+                    return false;
+            }
+
+            return true;
+        });
+    }
+
+    protected static boolean declares(Class<?> clazz, String[] names, Class<?>... parameterTypes)
+    {
+        for (String name : names)
+        {
+            try
+            {
+                clazz.getDeclaredMethod(name, parameterTypes);
+                return true;
+            }
+            catch (NoSuchMethodException ignored)
+            {
+            }
+        }
+
+        return false;
+    }
+
+    protected static boolean isPlain(IBlockState state)
+    {
+        return !state.getBlock().hasTileEntity(state) && isPlain(state.getBlock());
+    }
+
+    public void setBlockState(BlockPos pos, IBlockState state, int flags)
+    {
+        if (flags != 2 || !setDirectly(pos, state))
+            world.setBlockState(pos, state, flags);
+    }
+
+    protected boolean setDirectly(BlockPos pos, IBlockState state)
+    {
+        if (!direct || world.captureBlockSnapshots || world.isOutsideBuildHeight(pos))
+            return false;
+
+        Entry entry = entry(pos.getX() >> 4, pos.getZ() >> 4);
+        if (entry == null)
+            return false;
+
+        int sectionY = pos.getY() >> 4;
+        ExtendedBlockStorage[] sections = entry.chunk.getBlockStorageArray();
+        ExtendedBlockStorage section = sections[sectionY];
+
+        IBlockState previous = section != Chunk.NULL_BLOCK_STORAGE
+                ? section.get(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15)
+                : Blocks.AIR.getDefaultState();
+
+        if (previous == state)
+            return true;
+        if (!isPlain(previous) || !isPlain(state))
+            return false;
+
+        if (section == Chunk.NULL_BLOCK_STORAGE)
+            section = sections[sectionY] = new ExtendedBlockStorage(sectionY << 4, world.provider.hasSkyLight());
+
+        section.set(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15, state);
+        entry.mark(pos);
+
+        if (previous.getLightValue(world, pos) != state.getLightValue(world, pos))
+            emissionChanges.add(pos.toLong());
+        if (previous.getLightOpacity(world, pos) != state.getLightOpacity(world, pos))
+            opacityChanges.add(pos.toLong());
+
+        return true;
+    }
+
+    protected Entry entry(int x, int z)
+    {
+        if (last != null && last.x == x && last.z == z)
+            return last.watched ? null : last;
+
+        long key = ChunkPos.asLong(x, z);
+        Entry entry = chunks.get(key);
+        if (entry == null)
+            chunks.put(key, entry = new Entry(x, z, world.getChunkFromChunkCoords(x, z), isWatched(x, z)));
+
+        last = entry;
+        return entry.watched ? null : entry;
+    }
+
+    protected boolean isWatched(int x, int z)
+    {
+        return ((WorldServer) world).getPlayerChunkMap().contains(x, z);
+    }
+
+    @Override
+    public void close()
+    {
+        boolean skyLight = world.provider.hasSkyLight();
+        LongSet skyChecks = new LongOpenHashSet();
+
+        for (Entry entry : chunks.values())
+        {
+            if (entry.modified)
+            {
+                if (relightColumns)
+                    relightColumns(entry, skyLight, skyChecks);
+                entry.chunk.markDirty();
+            }
+        }
+
+        // Light spreads sideways into and out of what was written only where it borders something else
+        LongSet blockChecks = new LongOpenHashSet(emissionChanges);
+        BlockPos.MutableBlockPos neighbor = new BlockPos.MutableBlockPos();
+        for (LongIterator iterator = opacityChanges.iterator(); iterator.hasNext(); )
+        {
+            long pos = iterator.nextLong();
+            if (isBorder(BlockPos.fromLong(pos), neighbor))
+            {
+                blockChecks.add(pos);
+                if (skyLight)
+                    skyChecks.add(pos);
+            }
+        }
+
+        for (LongIterator iterator = skyChecks.iterator(); iterator.hasNext(); )
+            world.checkLightFor(EnumSkyBlock.SKY, BlockPos.fromLong(iterator.nextLong()));
+        for (LongIterator iterator = blockChecks.iterator(); iterator.hasNext(); )
+            world.checkLightFor(EnumSkyBlock.BLOCK, BlockPos.fromLong(iterator.nextLong()));
+
+        chunks.clear();
+        emissionChanges.clear();
+        opacityChanges.clear();
+        last = null;
+    }
+
+    protected boolean isBorder(BlockPos pos, BlockPos.MutableBlockPos neighbor)
+    {
+        for (EnumFacing facing : EnumFacing.VALUES)
+        {
+            if (!opacityChanges.contains(neighbor.setPos(pos).move(facing).toLong()))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Fixes the height map of the columns that were written to, and lets sky light fall down each of them,
+     * like {@link Chunk#generateSkylightMap()} but also darkening what is below a new roof.
+     * Light only spreads sideways at the border of the relit columns, like in {@link HeightMapFreezer#melt()}.
+     */
+    protected void relightColumns(Entry entry, boolean skyLight, LongSet skyChecks)
+    {
+        Chunk chunk = entry.chunk;
+        int[] heightMap = chunk.getHeightMap();
+        ExtendedBlockStorage[] sections = chunk.getBlockStorageArray();
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+
+        for (int i = 0; i < heightMap.length; i++)
+        {
+            if (entry.maxY[i] < 0)
+                continue;
+
+            int x = (entry.x << 4) | (i & 15), z = (entry.z << 4) | (i >> 4);
+            int original = heightMap[i];
+            int top = Math.max(original, entry.maxY[i] + 1);
+
+            int height = top;
+            while (height > 0 && chunk.getBlockState(x, height - 1, z).getLightOpacity(world, pos.setPos(x, height - 1, z)) == 0)
+                height--;
+            heightMap[i] = height;
+
+            if (!skyLight)
+                continue;
+
+            int bottom = Math.min(Math.min(original, height), entry.minY[i]);
+            int light = 15;
+            for (int y = top - 1; y >= bottom; y--)
+            {
+                if (y < height && light > 0)
+                    light = Math.max(0, light - Math.max(1, chunk.getBlockState(x, y, z).getLightOpacity(world, pos.setPos(x, y, z))));
+
+                ExtendedBlockStorage section = sections[y >> 4];
+                if (section != Chunk.NULL_BLOCK_STORAGE)
+                    section.setSkyLight(x & 15, y & 15, z & 15, light);
+            }
+
+            // Below, light came from above before and may be too bright or too dark now
+            if (bottom > 0)
+                skyChecks.add(pos.setPos(x, bottom - 1, z).toLong());
+
+            // Next to columns that weren't relit, light may also come in or go out sideways
+            if (!isRelit(x - 1, z) || !isRelit(x + 1, z) || !isRelit(x, z - 1) || !isRelit(x, z + 1))
+            {
+                for (int y = bottom; y < top; y++)
+                    skyChecks.add(pos.setPos(x, y, z).toLong());
+            }
+        }
+    }
+
+    protected boolean isRelit(int x, int z)
+    {
+        Entry entry = chunks.get(ChunkPos.asLong(x >> 4, z >> 4));
+        return entry != null && entry.modified && entry.maxY[((z & 15) << 4) | (x & 15)] >= 0;
+    }
+
+    protected static class Entry
+    {
+        public final int x, z;
+        public final Chunk chunk;
+        public final boolean watched;
+
+        public boolean modified;
+        // Lowest and highest y written to per column, or -1
+        public int[] minY, maxY;
+
+        public Entry(int x, int z, Chunk chunk, boolean watched)
+        {
+            this.x = x;
+            this.z = z;
+            this.chunk = chunk;
+            this.watched = watched;
+        }
+
+        public void mark(BlockPos pos)
+        {
+            if (!modified)
+            {
+                modified = true;
+                minY = new int[256];
+                maxY = new int[256];
+                Arrays.fill(minY, -1);
+                Arrays.fill(maxY, -1);
+            }
+
+            int i = ((pos.getZ() & 15) << 4) | (pos.getX() & 15);
+            if (minY[i] < 0 || pos.getY() < minY[i])
+                minY[i] = pos.getY();
+            if (pos.getY() > maxY[i])
+                maxY[i] = pos.getY();
+        }
+    }
+}
@@ -7,18 +7,19 @@ package ivorius.reccomplex.world.gen.feature;
 
 import gnu.trove.map.TIntObjectMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
 import ivorius.ivtoolkit.world.chunk.gen.StructureBoundingBoxes;
 import ivorius.reccomplex.utils.RCStructureBoundingBoxes;
-import ivorius.reccomplex.utils.accessor.SafeReflector;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.EnumSkyBlock;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 import net.minecraft.world.gen.structure.StructureBoundingBox;
-import net.minecraftforge.fml.relauncher.ReflectionHelper;
 
-import java.lang.reflect.Method;
 import java.util.Arrays;
 
 /**
@@ -26,9 +27,6 @@ import java.util.Arrays;
  */
 public class HeightMapFreezer
 {
-    protected static Method relightBlock;
-    protected static Method propagateSkylightOcclusion;
-
     protected StructureBoundingBox boundingBox;
 
     protected World world;
@@ -110,40 +108,111 @@ public class HeightMapFreezer
         }
     }
 
+    /**
+     * Restores the height map, raising it where opaque blocks were placed, and relights the sky light in one pass.
+     * Within the bounding box light only falls from the top. It only spreads sideways at its border
+     * and into blocks below the old height map.
+     */
     public void melt()
     {
-        if (relightBlock == null)
-            relightBlock = ReflectionHelper.findMethod(Chunk.class, "relightBlock", "func_76615_h",
-                    Integer.TYPE, Integer.TYPE, Integer.TYPE);
-        if (propagateSkylightOcclusion == null)
-            propagateSkylightOcclusion = ReflectionHelper.findMethod(Chunk.class, "propagateSkylightOcclusion", "func_76595_e",
-                    Integer.TYPE, Integer.TYPE);
-
-        // Restore
-        RCStructureBoundingBoxes.streamMutablePositions(boundingBox).forEach(pos ->
+        boolean skyLight = world.provider.hasSkyLight();
+        int width = boundingBox.getXSize(), length = boundingBox.getZSize();
+
+        // New height of each column, or -1 if it didn't rise
+        int[] heights = new int[width * length];
+        Arrays.fill(heights, -1);
+        LongList lightChecks = new LongArrayList();
+
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        chunks.forEachValue(entry ->
         {
-            Entry entry = entry(pos);
-            int surfaceIndex = chunkSurfaceIndex(pos);
-            //noinspection ConstantConditions
-            entry.chunk.getHeightMap()[surfaceIndex] = entry.original[surfaceIndex];
+            Chunk chunk = entry.chunk;
+            int[] heightMap = chunk.getHeightMap();
+            int minX = Math.max(boundingBox.minX, chunk.x << 4), maxX = Math.min(boundingBox.maxX, (chunk.x << 4) + 15);
+            int minZ = Math.max(boundingBox.minZ, chunk.z << 4), maxZ = Math.min(boundingBox.maxZ, (chunk.z << 4) + 15);
+
+            for (int x = minX; x <= maxX; x++)
+                for (int z = minZ; z <= maxZ; z++)
+                {
+                    int surfaceIndex = ((z & 15) << 4) | (x & 15);
+                    int original = entry.original[surfaceIndex];
+
+                    // Restore
+                    heightMap[surfaceIndex] = original;
+
+                    if (entry.heightMap[surfaceIndex] < original)
+                        continue;
+
+                    int height = entry.heightMap[surfaceIndex] + 1;
+                    while (height > original && chunk.getBlockState(x, height - 1, z).getLightOpacity(world, pos.setPos(x, height - 1, z)) == 0)
+                        height--;
+
+                    if (height <= original)
+                        continue;
+
+                    heightMap[surfaceIndex] = height;
+                    heights[(x - boundingBox.minX) * length + (z - boundingBox.minZ)] = height;
+
+                    if (skyLight)
+                    {
+                        int light = relightColumn(chunk, pos, x, z, height, original);
+
+                        // Light below the old height map came from above, so it might be too bright now
+                        if (original > 0 && chunk.getLightFor(EnumSkyBlock.SKY, pos.setPos(x, original - 1, z)) > light)
+                            lightChecks.add(pos.toLong());
+                    }
+                }
+
+            chunk.markDirty();
+            return true;
         });
 
-        // Relight
-        RCStructureBoundingBoxes.streamMutablePositions(boundingBox).forEach(pos ->
+        if (skyLight)
         {
-            Entry entry = entry(pos);
-            int surfaceIndex = chunkSurfaceIndex(pos);
-            //noinspection ConstantConditions
-            if (entry.heightMap[surfaceIndex] >= entry.original[surfaceIndex])
-            {
-                SafeReflector.invoke(entry.chunk, relightBlock, null,
-                        pos.getX() & 15, entry.heightMap[surfaceIndex] + 1, pos.getZ() & 15);
-                SafeReflector.invoke(entry.chunk, propagateSkylightOcclusion, null,
-                        pos.getX() & 15, pos.getZ() & 15);
-                if (world.provider.hasSkyLight())
-                    world.checkLight(new BlockPos(pos.getX(), entry.heightMap[surfaceIndex], pos.getZ()));
-            }
-        });
+            // Let light spread in and out where the raised area borders the rest of the world
+            for (int x = 0; x < width; x++)
+                for (int z = 0; z < length; z++)
+                {
+                    int height = heights[x * length + z];
+                    if (height >= 0 && (x == 0 || z == 0 || x == width - 1 || z == length - 1
+                            || heights[(x - 1) * length + z] < 0 || heights[(x + 1) * length + z] < 0
+                            || heights[x * length + z - 1] < 0 || heights[x * length + z + 1] < 0))
+                    {
+                        int worldX = x + boundingBox.minX, worldZ = z + boundingBox.minZ;
+                        //noinspection ConstantConditions
+                        int original = entry(pos.setPos(worldX, boundingBox.minY, worldZ)).original[chunkSurfaceIndex(pos)];
+
+                        for (int y = original; y < height; y++)
+                            lightChecks.add(pos.setPos(worldX, y, worldZ).toLong());
+                    }
+                }
+        }
+
+        for (int i = 0; i < lightChecks.size(); i++)
+            world.checkLightFor(EnumSkyBlock.SKY, BlockPos.fromLong(lightChecks.getLong(i)));
+    }
+
+    /**
+     * Lets sky light fall down the column from the new height to the old one, like {@link Chunk#generateSkylightMap()}.
+     *
+     * @return The light that reached the old height.
+     */
+    protected int relightColumn(Chunk chunk, BlockPos.MutableBlockPos pos, int x, int z, int height, int original)
+    {
+        ExtendedBlockStorage[] sections = chunk.getBlockStorageArray();
+
+        int light = 15;
+        for (int y = height - 1; y >= original; y--)
+        {
+            if (light > 0)
+                light = Math.max(0, light - Math.max(1, chunk.getBlockState(x, y, z).getLightOpacity(world, pos.setPos(x, y, z))));
+
+            ExtendedBlockStorage section = sections[y >> 4];
+            if (section != Chunk.NULL_BLOCK_STORAGE)
+                section.setSkyLight(x & 15, y & 15, z & 15, light);
+        }
+
+        return light;
     }
 
     private class Entry
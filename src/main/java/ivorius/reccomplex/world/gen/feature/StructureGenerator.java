@@ -21,6 +21,7 @@ import ivorius.reccomplex.world.gen.feature.structure.context.StructureLoadConte
 import ivorius.reccomplex.world.gen.feature.structure.context.StructurePrepareContext;
 import ivorius.reccomplex.world.gen.feature.structure.context.StructureSpawnContext;
 import ivorius.reccomplex.world.gen.feature.structure.generic.generation.GenerationType;
+import ivorius.reccomplex.world.gen.feature.structure.generic.placement.PlacementCache;
 import ivorius.reccomplex.world.gen.feature.structure.generic.placement.StructurePlaceContext;
 import ivorius.reccomplex.world.gen.feature.structure.generic.transformers.RunTransformer;
 import net.minecraft.nbt.NBTBase;
@@ -33,9 +34,11 @@ import net.minecraftforge.common.MinecraftForge;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -96,6 +99,8 @@ public class StructureGenerator<S extends NBTStorable>
 
     private boolean allowOverlaps = false;
     private boolean memorize = true;
+    @Nullable
+    private Integer spawnLimit;
 
     private boolean partially;
 
@@ -139,14 +144,30 @@ public class StructureGenerator<S extends NBTStorable>
         WorldServer world = spawn.environment.world;
         StructureBoundingBox boundingBox = spawn.boundingBox;
 
+        WorldStructureGenerationData data = WorldStructureGenerationData.get(world);
+
+        // Overlaps are checked again when adding the entry, this just fails early
         if (maturity().isSuggest() && (
                 boundingBox.minY < MIN_DIST_TO_LIMIT || boundingBox.maxY > world.getHeight() - 1 - MIN_DIST_TO_LIMIT
-                        || (RCConfig.avoidOverlappingGeneration && !allowOverlaps && !WorldStructureGenerationData.get(world).entriesAt(boundingBox).noneMatch(WorldStructureGenerationData.Entry::blocking))
+                        || (RCConfig.avoidOverlappingGeneration && !allowOverlaps && !data.entriesAt(boundingBox).noneMatch(WorldStructureGenerationData.Entry::blocking))
                         || RCEventBus.INSTANCE.post(new StructureGenerationEvent.Suggest(structure, spawn))
                         || (structureID != null && MinecraftForge.EVENT_BUS.post(new StructureGenerationEventLite.Suggest(world, structureID, boundingBox, spawn.generationLayer, firstTime)))
         ))
             return failGenerate("unknown reason");
 
+        WorldStructureGenerationData.StructureEntry reserved = null;
+        Collection<ChunkPos> existingChunks = null;
+
+        // Claim the space and a spot within the spawn limit before generating, so nobody else can in the meantime
+        if (maturity().isSuggest() && firstTime && structureID != null && memorize)
+        {
+            reserved = entry(structure, structureID, spawn, instanceData);
+            Set<ChunkPos> chunks = data.tryAddEntry(reserved, RCConfig.avoidOverlappingGeneration && !allowOverlaps, spawnLimit);
+            if (chunks == null)
+                return failGenerate("overlapping or limited");
+            existingChunks = new ArrayList<>(chunks);
+        }
+
         if (firstTime)
         {
             RCEventBus.INSTANCE.post(new StructureGenerationEvent.Pre(structure, spawn));
@@ -155,6 +176,8 @@ public class StructureGenerator<S extends NBTStorable>
         }
 
         RCWorldgenMonitor.start("generating " + structureID());
+        // Placement caches around here are outdated once we change blocks
+        PlacementCache.invalidate();
         try
         {
             structure.generate(spawn, instanceData, transformer != null ? transformer.transformer : RCConfig.getUniversalTransformer());
@@ -162,10 +185,13 @@ public class StructureGenerator<S extends NBTStorable>
         catch (Exception e)
         {
             RecurrentComplex.logger.error("Error on structure generation", e);
+            if (reserved != null)
+                data.removeEntry(reserved.getUuid());
             return failGenerate("exception on generation");
         }
         finally
         {
+            PlacementCache.invalidate();
             RCWorldgenMonitor.stop();
         }
 
@@ -181,24 +207,13 @@ public class StructureGenerator<S extends NBTStorable>
         if (structureID == null || !memorize)
             return Optional.empty();
 
-        String generationInfoID = generationType != null ? generationType.id() : null;
-
-        WorldStructureGenerationData.StructureEntry structureEntry = WorldStructureGenerationData.StructureEntry.complete(structureID, generationInfoID, boundingBox, spawn.transform, !partially);
-        structureEntry.blocking = structure.isBlocking();
-        structureEntry.firstTime = false; // Been there done that
-        structureEntry.seed = seed();
-
-        try
-        {
-            structureEntry.instanceData = instanceData.writeToNBT();
-        }
-        catch (Exception e)
+        WorldStructureGenerationData.StructureEntry structureEntry = reserved;
+        if (structureEntry == null)
         {
-            RecurrentComplex.logger.error(String.format("Error saving instance data for structure %s in %s", structure, boundingBox), e);
+            structureEntry = entry(structure, structureID, spawn, instanceData);
+            existingChunks = data.addEntry(structureEntry).stream().collect(Collectors.toList());
         }
 
-        Collection<ChunkPos> existingChunks = WorldStructureGenerationData.get(world).addEntry(structureEntry).stream().collect(Collectors.toList());
-
         // Complement in all chunks that already exist
         if (partially)
         {
@@ -217,11 +232,33 @@ public class StructureGenerator<S extends NBTStorable>
                 RCWorldgenMonitor.stop();
             }
             generationBB(oldBB);
+            PlacementCache.invalidate();
         }
 
         return Optional.of(structureEntry);
     }
 
+    protected WorldStructureGenerationData.StructureEntry entry(Structure<S> structure, String structureID, StructureSpawnContext spawn, S instanceData)
+    {
+        String generationInfoID = generationType != null ? generationType.id() : null;
+
+        WorldStructureGenerationData.StructureEntry structureEntry = WorldStructureGenerationData.StructureEntry.complete(structureID, generationInfoID, spawn.boundingBox, spawn.transform, !partially);
+        structureEntry.blocking = structure.isBlocking();
+        structureEntry.firstTime = false; // Been there done that
+        structureEntry.seed = seed();
+
+        try
+        {
+            structureEntry.instanceData = instanceData.writeToNBT();
+        }
+        catch (Exception e)
+        {
+            RecurrentComplex.logger.error(String.format("Error saving instance data for structure %s in %s", structure, spawn.boundingBox), e);
+        }
+
+        return structureEntry;
+    }
+
     @Nullable
     protected Optional<WorldStructureGenerationData.StructureEntry> failGenerate(String reason)
     {
@@ -538,6 +575,15 @@ public class StructureGenerator<S extends NBTStorable>
         return this;
     }
 
+    /**
+     * @param spawnLimit The number of entries of the structure at which suggested generation fails, or null for no limit.
+     */
+    public StructureGenerator<S> spawnLimit(@Nullable Integer spawnLimit)
+    {
+        this.spawnLimit = spawnLimit;
+        return this;
+    }
+
     @Nonnull
     public StructurePlaceContext place()
     {
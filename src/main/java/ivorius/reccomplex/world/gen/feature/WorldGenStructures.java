@@ -17,6 +17,7 @@ import ivorius.reccomplex.world.gen.feature.structure.Structures;
 import ivorius.reccomplex.world.gen.feature.structure.context.StructureSpawnContext;
 import ivorius.reccomplex.world.gen.feature.structure.generic.generation.NaturalGeneration;
 import ivorius.reccomplex.world.gen.feature.structure.generic.generation.StaticGeneration;
+import ivorius.reccomplex.world.gen.feature.structure.generic.placement.PlacementCache;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.MathHelper;
@@ -27,6 +28,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -83,14 +85,17 @@ public class WorldGenStructures
 
         float distanceToSpawn = distance(new ChunkPos(world.getSpawnPoint()), chunkPos);
 
-        for (int i = 0; i < STRUCTURE_TRIES; i++)
+        try (PlacementCache ignored = PlacementCache.open(world))
         {
-            Pair<Structure<?>, NaturalGeneration> pair = structureSelector.selectOne(random, world.provider, world.getBiome(chunkPos.getBlock(0, 0, 0)), null, distanceToSpawn);
-
-            if (pair != null)
+            for (int i = 0; i < STRUCTURE_TRIES; i++)
             {
-                if (planStructureInChunk(chunkPos, world, pair.getLeft(), pair.getRight(), random.nextLong()))
-                    return true;
+                Pair<Structure<?>, NaturalGeneration> pair = structureSelector.selectOne(random, world.provider, world.getBiome(chunkPos.getBlock(0, 0, 0)), null, distanceToSpawn);
+
+                if (pair != null)
+                {
+                    if (planStructureInChunk(chunkPos, world, pair.getLeft(), pair.getRight(), random.nextLong()))
+                        return true;
+                }
             }
         }
 
@@ -109,7 +114,8 @@ public class WorldGenStructures
             StructureGenerator<?> generator = new StructureGenerator<>(structure).world(world).generationInfo(naturalGenInfo)
                     .seed(seed).maturity(StructureSpawnContext.GenerateMaturity.SUGGEST)
                     .randomPosition(genPos, naturalGenInfo.placer).fromCenter(true)
-                    .partially(RecurrentComplex.PARTIALLY_SPAWN_NATURAL_STRUCTURES, chunkPos);
+                    .partially(RecurrentComplex.PARTIALLY_SPAWN_NATURAL_STRUCTURES, chunkPos)
+                    .spawnLimit(naturalGenInfo.hasLimitations() ? naturalGenInfo.getLimitations().maxCount : null);
 
             if (naturalGenInfo.getGenerationWeight(world.provider, generator.environment().biome) <= 0)
             {
@@ -153,7 +159,7 @@ public class WorldGenStructures
             if (entry.firstTime)
             {
                 entry.firstTime = false;
-                data.markDirty();
+                data.markDirty(entry);
             }
         });
     }
@@ -181,33 +187,43 @@ public class WorldGenStructures
         boolean worldWantsStructures = world.getWorldInfo().isMapFeaturesEnabled();
         WorldStructureGenerationData data = WorldStructureGenerationData.get(world);
 
-        // We need to synchronize (multithreaded gen) since we need to plan structures before complementing,
-        // otherwise structures get lost in some chunks
-        synchronized (data)
+        // We need to lock (multithreaded gen) since we need to plan structures before complementing,
+        // otherwise structures get lost in some chunks.
+        // Entries are added while holding the locks of all regions they touch, so either they are found here,
+        // or this chunk is already checked and they get complemented right away by the planner.
+        List<WorldStructureGenerationData.StructureEntry> complement;
+        Lock lock = data.lock(chunkPos);
+        lock.lock();
+        try
         {
-            // TODO Synchronize on chunk pos instead (need to make sure these are only added on same sync though)
-
-            List<WorldStructureGenerationData.StructureEntry> complement = data.structureEntriesIn(chunkPos).collect(Collectors.toList());
+            complement = data.structureEntriesIn(chunkPos).collect(Collectors.toList());
             if (structurePredicate == null)
                 data.checkChunk(chunkPos);
+        }
+        finally
+        {
+            lock.unlock();
+        }
 
-            // Complement before generating so we don't complement newly planned structures:
-            // Chunk checked
-            // Structure starts generating
-            // Triggers other chunks, sight doesn't exist yet so no complementation in those
-            // Structure stops generating and adds entry
-            // Other structures that generated into this one are not complemented into it because complementation happened already
+        // Complement before generating so we don't complement newly planned structures:
+        // Chunk checked
+        // Structure starts generating
+        // Triggers other chunks, sight doesn't exist yet so no complementation in those
+        // Structure stops generating and adds entry
+        // Other structures that generated into this one are not complemented into it because complementation happened already
 
-            if (structurePredicate == null)
-                complementStructuresInChunk(chunkPos, world, complement);
+        if (structurePredicate == null)
+            complementStructuresInChunk(chunkPos, world, complement);
 
-            if ((!RCConfig.honorStructureGenerationOption || worldWantsStructures)
-                    // If partially spawn, check chunks as having tried to add partial structures as into the thingy
-                    && (structurePredicate == null || !RecurrentComplex.PARTIALLY_SPAWN_NATURAL_STRUCTURES || data.checkChunkFinal(chunkPos)))
-            {
-                Biome biomeGen = world.getBiome(chunkPos.getBlock(8, 0, 8));
-                BlockPos spawnPos = world.getSpawnPoint();
+        if ((!RCConfig.honorStructureGenerationOption || worldWantsStructures)
+                // If partially spawn, check chunks as having tried to add partial structures as into the thingy
+                && (structurePredicate == null || !RecurrentComplex.PARTIALLY_SPAWN_NATURAL_STRUCTURES || data.checkChunkFinal(chunkPos)))
+        {
+            Biome biomeGen = world.getBiome(chunkPos.getBlock(8, 0, 8));
+            BlockPos spawnPos = world.getSpawnPoint();
 
+            try (PlacementCache ignored = PlacementCache.open(world))
+            {
                 planStaticStructuresInChunk(random, chunkPos, world, spawnPos, structurePredicate);
 
                 boolean mayGenerate = RCConfig.isGenerationEnabled(biomeGen) && RCConfig.isGenerationEnabled(world.provider);
@@ -220,9 +236,9 @@ public class WorldGenStructures
 
                 if (mayGenerate)
                     planStructuresInChunk(random, chunkPos, world, biomeGen, structurePredicate);
-
-                generated = true;
             }
+
+            generated = true;
         }
 
         return generated;
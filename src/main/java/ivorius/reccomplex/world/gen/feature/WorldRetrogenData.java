@@ -0,0 +1,174 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.world.gen.feature;
+
+import ivorius.reccomplex.RecurrentComplex;
+import ivorius.reccomplex.world.gen.feature.structure.Structure;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.World;
+import net.minecraft.world.storage.WorldSavedData;
+import net.minecraftforge.common.util.Constants;
+import org.apache.commons.lang3.tuple.Pair;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Keeps track of the retrogen running in a dimension, so that it can continue where it left off after a restart.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class WorldRetrogenData extends WorldSavedData
+{
+    private static final String IDENTIFIER = RecurrentComplex.MOD_ID + "-retrogen";
+
+    @Nullable
+    protected Job job;
+
+    public WorldRetrogenData(String id)
+    {
+        super(id);
+    }
+
+    public WorldRetrogenData()
+    {
+        this(IDENTIFIER);
+    }
+
+    public static WorldRetrogenData get(World world)
+    {
+        WorldRetrogenData data = (WorldRetrogenData) world.getPerWorldStorage().getOrLoadData(WorldRetrogenData.class, IDENTIFIER);
+        if (data == null)
+        {
+            data = new WorldRetrogenData();
+            world.getPerWorldStorage().setData(data.mapName, data);
+        }
+        return data;
+    }
+
+    @Nullable
+    public Job getJob()
+    {
+        return job;
+    }
+
+    public Job start(@Nullable String expression, long total)
+    {
+        job = new Job(expression, total);
+        markDirty();
+        return job;
+    }
+
+    /**
+     * Stops the job, be it because it was cancelled or because it is done.
+     *
+     * @return The stopped job, or null if none was running.
+     */
+    @Nullable
+    public Job stop()
+    {
+        Job job = this.job;
+        this.job = null;
+        markDirty();
+        return job;
+    }
+
+    @Override
+    public void readFromNBT(NBTTagCompound compound)
+    {
+        job = compound.hasKey("job", Constants.NBT.TAG_COMPOUND) ? new Job(compound.getCompoundTag("job")) : null;
+    }
+
+    @Override
+    public NBTTagCompound writeToNBT(NBTTagCompound compound)
+    {
+        if (job != null)
+            compound.setTag("job", job.writeToNBT());
+
+        return compound;
+    }
+
+    public static class Job
+    {
+        /**
+         * The structure expression to generate, or null for all structures.
+         */
+        @Nullable
+        public final String expression;
+
+        /**
+         * The region and local chunk index (x * 32 + z) to look at next.
+         */
+        public int regionX, regionZ, chunk;
+
+        public long processed;
+        public long generated;
+        public long total;
+
+        // Not saved; reset when the world loads
+        @Nullable
+        public Predicate<Structure> structurePredicate;
+        @Nullable
+        public List<Pair<Integer, Integer>> regions;
+        public int regionIndex;
+
+        public final long sessionStart = System.currentTimeMillis();
+        public long sessionProcessed;
+
+        public Job(@Nullable String expression, long total)
+        {
+            this.expression = expression;
+            this.regionX = Integer.MIN_VALUE;
+            this.regionZ = Integer.MIN_VALUE;
+            this.total = total;
+        }
+
+        public Job(NBTTagCompound compound)
+        {
+            expression = compound.hasKey("expression", Constants.NBT.TAG_STRING) ? compound.getString("expression") : null;
+            regionX = compound.getInteger("regionX");
+            regionZ = compound.getInteger("regionZ");
+            chunk = compound.getInteger("chunk");
+            processed = compound.getLong("processed");
+            generated = compound.getLong("generated");
+            total = compound.getLong("total");
+        }
+
+        public NBTTagCompound writeToNBT()
+        {
+            NBTTagCompound compound = new NBTTagCompound();
+
+            if (expression != null)
+                compound.setString("expression", expression);
+            compound.setInteger("regionX", regionX);
+            compound.setInteger("regionZ", regionZ);
+            compound.setInteger("chunk", chunk);
+            compound.setLong("processed", processed);
+            compound.setLong("generated", generated);
+            compound.setLong("total", total);
+
+            return compound;
+        }
+
+        public float progress()
+        {
+            return total > 0 ? Math.min(1, (float) processed / total) : 1;
+        }
+
+        /**
+         * @return The estimated remaining time in milliseconds, based on the speed since the world was loaded, or -1 if unknown.
+         */
+        public long remainingTime()
+        {
+            if (sessionProcessed <= 0)
+                return -1;
+
+            long elapsed = System.currentTimeMillis() - sessionStart;
+            return Math.max(0, total - processed) * elapsed / sessionProcessed;
+        }
+    }
+}
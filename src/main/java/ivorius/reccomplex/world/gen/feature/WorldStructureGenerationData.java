@@ -6,8 +6,10 @@
 package ivorius.reccomplex.world.gen.feature;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
-import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Striped;
 import ivorius.ivtoolkit.blocks.BlockPositions;
 import ivorius.ivtoolkit.math.AxisAlignedTransform2D;
 import ivorius.ivtoolkit.tools.NBTCompoundObject;
@@ -15,22 +17,38 @@ import ivorius.ivtoolkit.tools.NBTCompoundObjects;
 import ivorius.ivtoolkit.tools.NBTTagLists;
 import ivorius.ivtoolkit.world.chunk.gen.StructureBoundingBoxes;
 import ivorius.reccomplex.RecurrentComplex;
+import ivorius.reccomplex.utils.ChunkGrid;
 import ivorius.reccomplex.utils.RCAxisAlignedTransform;
 import ivorius.reccomplex.utils.RCStructureBoundingBoxes;
 import ivorius.reccomplex.world.gen.feature.structure.Structure;
 import ivorius.reccomplex.world.gen.feature.structure.StructureRegistry;
 import ivorius.reccomplex.world.gen.feature.structure.Structures;
+import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
 import net.minecraft.world.gen.structure.StructureBoundingBox;
 import net.minecraft.world.storage.WorldSavedData;
 import net.minecraftforge.common.util.Constants;
+import org.apache.commons.io.FileUtils;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -41,13 +59,34 @@ public class WorldStructureGenerationData extends WorldSavedData
 {
     private static final String IDENTIFIER = RecurrentComplex.MOD_ID + "-structuredata";
 
-    protected final Set<ChunkPos> checkedChunks = new HashSet<>();
-    protected final Set<ChunkPos> checkedChunksFinal = new HashSet<>();
+    public static final int VERSION = 2;
 
-    protected final Map<UUID, Entry> entryMap = new HashMap<>();
-    protected final SetMultimap<ChunkPos, Entry> chunkMap = HashMultimap.create();
+    // 32x32 chunks per region
+    public static final int REGION_SHIFT = 5;
+    public static final int REGION_SIZE = 1 << REGION_SHIFT;
 
-    protected final SetMultimap<String, StructureEntry> instanceMap = HashMultimap.create();
+    /**
+     * The directory holding the region shards. If null, everything is kept in memory and saved in the main file.
+     */
+    @Nullable
+    protected File directory;
+
+    protected final ConcurrentMap<Long, Region> regions = new ConcurrentHashMap<>();
+
+    /**
+     * Every known entry, loaded or not. Loaded entries are in the entry map.
+     */
+    protected final Map<UUID, IndexEntry> index = new ConcurrentHashMap<>();
+    protected final SetMultimap<String, UUID> instanceIndex = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+
+    protected final Map<UUID, Entry> entryMap = new ConcurrentHashMap<>();
+
+    /**
+     * Entries that can't be put into regions since they don't have a valid bounding box.
+     */
+    protected final Set<Entry> unplaced = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    protected final Striped<Lock> countLocks = Striped.lock(16);
 
     public WorldStructureGenerationData(String id)
     {
@@ -67,9 +106,97 @@ public class WorldStructureGenerationData extends WorldSavedData
             data = new WorldStructureGenerationData();
             world.getPerWorldStorage().setData(data.mapName, data);
         }
+        if (data.directory == null && world instanceof WorldServer)
+            data.directory = new File(new File(((WorldServer) world).getChunkSaveLocation(), "data"), IDENTIFIER);
         return data;
     }
 
+    // Subtract 8 since the chunk grid is rasterized for decoration where every chunk is +8
+    protected static int cell(int coord)
+    {
+        return (coord - 8) >> 4;
+    }
+
+    @Nonnull
+    protected Region region(int regionX, int regionZ)
+    {
+        long key = ChunkGrid.key(regionX, regionZ);
+        Region region = regions.get(key);
+
+        if (region == null)
+        {
+            // Load outside of the map, since loading may need to load other regions too
+            Region loaded = loadRegion(regionX, regionZ);
+            region = regions.putIfAbsent(key, loaded);
+            if (region == null)
+                region = loaded;
+        }
+
+        region.used = true;
+        return region;
+    }
+
+    @Nonnull
+    protected Region regionOf(ChunkPos chunkPos)
+    {
+        return region(chunkPos.x >> REGION_SHIFT, chunkPos.z >> REGION_SHIFT);
+    }
+
+    /**
+     * @return All regions touching the cells, in lock order.
+     */
+    protected List<Region> regions(int minX, int minZ, int maxX, int maxZ)
+    {
+        List<Region> regions = new ArrayList<>();
+        for (int x = minX >> REGION_SHIFT; x <= maxX >> REGION_SHIFT; x++)
+            for (int z = minZ >> REGION_SHIFT; z <= maxZ >> REGION_SHIFT; z++)
+                regions.add(region(x, z));
+        return regions;
+    }
+
+    protected List<Region> regions(StructureBoundingBox boundingBox)
+    {
+        return RCStructureBoundingBoxes.valid(boundingBox)
+                ? regions(cell(boundingBox.minX), cell(boundingBox.minZ), cell(boundingBox.maxX), cell(boundingBox.maxZ))
+                : Collections.emptyList();
+    }
+
+    /**
+     * Locks the region, or the one that was loaded in its place if it was evicted in the meantime.
+     *
+     * @return The locked region.
+     */
+    protected Region lockLoaded(Region region)
+    {
+        region.lock.lock();
+        while (region.evicted)
+        {
+            region.lock.unlock();
+            region = region(region.x, region.z);
+            region.lock.lock();
+        }
+        return region;
+    }
+
+    protected void lockAll(List<Region> regions)
+    {
+        regions.replaceAll(this::lockLoaded);
+    }
+
+    protected static void unlockAll(List<Region> regions)
+    {
+        Lists.reverse(regions).forEach(r -> r.lock.unlock());
+    }
+
+    /**
+     * Lock used to make chunk-local operations (e.g. collecting entries to complement and checking the chunk) atomic.
+     * Entries are only ever added while holding the locks of all regions they touch.
+     */
+    public Lock lock(ChunkPos chunkPos)
+    {
+        return regionOf(chunkPos).lock;
+    }
+
     public Stream<StructureEntry> structureEntriesIn(ChunkPos coords)
     {
         return entriesAt(coords)
@@ -78,13 +205,20 @@ public class WorldStructureGenerationData extends WorldSavedData
 
     public Stream<Entry> entriesAt(ChunkPos coords)
     {
-        return chunkMap.get(coords).stream();
+        Region region = lockLoaded(regionOf(coords));
+        try
+        {
+            return region.chunkGrid.get(coords.x, coords.z).collect(Collectors.toList()).stream();
+        }
+        finally
+        {
+            region.lock.unlock();
+        }
     }
 
     public Stream<Entry> entriesAt(final BlockPos coords)
     {
-        // Add 8 for both since the chunk map is rasterized for decoration where every chunk is +8
-        return entriesAt(new ChunkPos((coords.getX() - 8) >> 4, (coords.getZ() - 8) >> 4))
+        return entriesAt(new ChunkPos(cell(coords.getX()), cell(coords.getZ())))
                 .filter(input ->
                 {
                     StructureBoundingBox bb = input.getBoundingBox();
@@ -94,48 +228,206 @@ public class WorldStructureGenerationData extends WorldSavedData
 
     public Stream<Entry> entriesAt(final StructureBoundingBox boundingBox)
     {
-        return RCStructureBoundingBoxes.rasterize(boundingBox, true).stream().flatMap(chunkPos -> entriesAt(chunkPos).filter(input ->
+        if (!RCStructureBoundingBoxes.valid(boundingBox))
+            return Stream.empty();
+
+        int minX = cell(boundingBox.minX), minZ = cell(boundingBox.minZ);
+        int maxX = cell(boundingBox.maxX), maxZ = cell(boundingBox.maxZ);
+
+        Set<Entry> entries = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Region region : regions(minX, minZ, maxX, maxZ))
+        {
+            region = lockLoaded(region);
+            try
+            {
+                region.chunkGrid.visit(Math.max(minX, region.minX()), Math.max(minZ, region.minZ()),
+                        Math.min(maxX, region.maxX()), Math.min(maxZ, region.maxZ()), entries::add);
+            }
+            finally
+            {
+                region.lock.unlock();
+            }
+        }
+
+        return entries.stream().filter(input ->
         {
             StructureBoundingBox bb = input.getBoundingBox();
             return bb != null && bb.intersectsWith(boundingBox);
-        }));
+        });
     }
 
+    /**
+     * @return The chunks touched by the entry that have already been checked, and thus need to be complemented right away.
+     */
     public Set<ChunkPos> addEntry(Entry entry)
     {
+        if (index.containsKey(entry.getUuid()))
+            removeEntry(entry.getUuid());
+
+        IndexEntry indexEntry = new IndexEntry(entry);
+        index.put(entry.getUuid(), indexEntry);
+        if (indexEntry.structureID != null)
+            instanceIndex.put(indexEntry.structureID, entry.getUuid());
         entryMap.put(entry.getUuid(), entry);
 
         Set<ChunkPos> rasterized = entry.rasterize();
-        for (ChunkPos coords : rasterized)
-            chunkMap.put(coords, entry);
+        Set<ChunkPos> existing = new HashSet<>();
 
-        if (entry instanceof StructureEntry)
-            instanceMap.put(((StructureEntry) entry).getStructureID(), (StructureEntry) entry);
+        List<Region> regions = regions(entry.getBoundingBox());
+        if (regions.isEmpty())
+            unplaced.add(entry);
+
+        lockAll(regions);
+        try
+        {
+            for (Region region : regions)
+            {
+                region.index(entry);
+
+                for (ChunkPos chunkPos : rasterized)
+                {
+                    if (region.contains(chunkPos) && region.isChecked(region.checkedChunks, chunkPos))
+                        existing.add(chunkPos);
+                }
+            }
+        }
+        finally
+        {
+            unlockAll(regions);
+        }
 
         markDirty();
 
-        return Sets.intersection(checkedChunks, rasterized);
+        return existing;
+    }
+
+    /**
+     * Adds the entry unless it overlaps a blocking entry, or its structure already has as many entries as allowed.
+     * Both are checked under the same locks as adding the entry, so concurrent planners can't both pass them.
+     *
+     * @param maxCount The number of entries of the structure at which to refuse, or null for no limit.
+     * @return The chunks as in {@link #addEntry(Entry)}, or null if the entry wasn't added.
+     */
+    @Nullable
+    public Set<ChunkPos> tryAddEntry(Entry entry, boolean avoidOverlaps, @Nullable Integer maxCount)
+    {
+        String structureID = entry instanceof StructureEntry ? ((StructureEntry) entry).getStructureID() : null;
+        // Entries of one structure can be anywhere, so their count needs a lock of its own
+        Lock countLock = maxCount != null && structureID != null ? countLocks.get(structureID) : null;
+
+        if (countLock != null)
+            countLock.lock();
+        try
+        {
+            List<Region> regions = regions(entry.getBoundingBox());
+            lockAll(regions);
+            try
+            {
+                if (avoidOverlaps && entriesAt(entry.getBoundingBox()).anyMatch(Entry::blocking))
+                    return null;
+                if (countLock != null && countEntriesByID(structureID) >= maxCount)
+                    return null;
+
+                return addEntry(entry);
+            }
+            finally
+            {
+                unlockAll(regions);
+            }
+        }
+        finally
+        {
+            if (countLock != null)
+                countLock.unlock();
+        }
+    }
+
+    /**
+     * Loads the region the entry is saved in, if needed, so that it is in the entry map.
+     */
+    @Nullable
+    protected Entry loadEntry(UUID id)
+    {
+        IndexEntry indexEntry = index.get(id);
+        if (indexEntry == null)
+            return null;
+
+        Entry entry = entryMap.get(id);
+        if (entry == null)
+        {
+            region(indexEntry.minX, indexEntry.minZ);
+            entry = entryMap.get(id);
+        }
+        return entry;
     }
 
     public Entry getEntry(UUID id)
     {
-        return entryMap.get(id);
+        return loadEntry(id);
     }
 
     public Entry removeEntry(UUID id)
     {
-        Entry entry = entryMap.remove(id);
-        chunkMap.values().removeIf(e -> e.uuid.equals(id));
-        instanceMap.values().removeIf(e -> e.uuid.equals(id));
+        Entry entry = loadEntry(id);
 
         if (entry != null)
+        {
+            List<Region> regions = regions(entry.getBoundingBox());
+            lockAll(regions);
+            try
+            {
+                regions.forEach(region -> region.unindex(entry));
+            }
+            finally
+            {
+                unlockAll(regions);
+            }
+
+            IndexEntry indexEntry = index.remove(id);
+            if (indexEntry != null && indexEntry.structureID != null)
+                instanceIndex.remove(indexEntry.structureID, id);
+            entryMap.remove(id);
+            unplaced.remove(entry);
+
             markDirty();
+        }
         return entry;
     }
 
+    public int countEntriesByID(String id)
+    {
+        return instanceIndex.get(id).size();
+    }
+
     public Set<StructureEntry> getEntriesByID(String id)
     {
-        return instanceMap.get(id);
+        List<UUID> ids;
+        synchronized (instanceIndex)
+        {
+            ids = new ArrayList<>(instanceIndex.get(id));
+        }
+
+        return ids.stream().map(this::loadEntry)
+                .filter(StructureEntry.class::isInstance).map(StructureEntry.class::cast)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Call this after modifying an entry that was already added.
+     */
+    public void markDirty(Entry entry)
+    {
+        IndexEntry indexEntry = index.get(entry.getUuid());
+        if (indexEntry == null || directory == null || unplaced.contains(entry))
+        {
+            // Saved in the main file
+            markDirty();
+            return;
+        }
+
+        Region region = lockLoaded(region(indexEntry.minX, indexEntry.minZ));
+        region.dirty = true;
+        region.lock.unlock();
     }
 
     public Stream<ChunkPos> checkAllChunks(Stream<ChunkPos> chunks)
@@ -145,8 +437,21 @@ public class WorldStructureGenerationData extends WorldSavedData
 
     public boolean checkChunk(ChunkPos coords)
     {
-        boolean added = checkedChunks.add(coords);
-        if (added)
+        Region region = lockLoaded(regionOf(coords));
+
+        boolean added;
+        try
+        {
+            added = region.check(region.checkedChunks, coords);
+            region.dirty |= added;
+        }
+        finally
+        {
+            region.lock.unlock();
+        }
+
+        // The region is saved on its own, see saveRegions()
+        if (added && directory == null)
             markDirty();
         return added;
     }
@@ -154,39 +459,477 @@ public class WorldStructureGenerationData extends WorldSavedData
     //
     public boolean checkChunkFinal(ChunkPos coords)
     {
-        boolean added = checkedChunksFinal.add(coords);
-        if (added)
+        Region region = lockLoaded(regionOf(coords));
+
+        boolean added;
+        try
+        {
+            added = region.check(region.checkedChunksFinal, coords);
+            region.dirty |= added;
+        }
+        finally
+        {
+            region.lock.unlock();
+        }
+
+        // The region is saved on its own, see saveRegions()
+        if (added && directory == null)
             markDirty();
         return added;
     }
 
+    protected File regionFile(int x, int z)
+    {
+        return new File(directory, String.format("r.%d.%d.dat", x, z));
+    }
+
+    @Nullable
+    protected NBTTagCompound readRegionFile(int x, int z)
+    {
+        File file = directory != null ? regionFile(x, z) : null;
+        if (file == null || !file.exists())
+            return null;
+
+        try (FileInputStream inputStream = new FileInputStream(file))
+        {
+            return CompressedStreamTools.readCompressed(inputStream);
+        }
+        catch (IOException e)
+        {
+            RecurrentComplex.logger.error("Error loading structure data region " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the entries saved in the region, without loading the region itself.
+     *
+     * @return Whether any read entry was removed in the meantime.
+     */
+    protected boolean readEntries(NBTTagCompound compound, Consumer<Entry> consumer)
+    {
+        boolean[] stale = new boolean[1];
+        Stream.concat(NBTCompoundObjects.readListFrom(compound, "entries", StructureEntry::new).stream(),
+                NBTCompoundObjects.readListFrom(compound, "customEntries", CustomEntry::new).stream())
+                .forEach(read ->
+                {
+                    if (!index.containsKey(read.getUuid()))
+                    {
+                        stale[0] = true;
+                        return;
+                    }
+
+                    Entry existing = entryMap.putIfAbsent(read.getUuid(), read);
+                    consumer.accept(existing != null ? existing : read);
+                });
+        return stale[0];
+    }
+
+    @Nonnull
+    protected Region loadRegion(int x, int z)
+    {
+        Region region = new Region(x, z);
+
+        NBTTagCompound compound = readRegionFile(x, z);
+        if (compound == null)
+            return region;
+
+        boolean dirty = readEntries(compound, region::index);
+
+        // Referenced entries are saved in another region. Read them from there, but don't load that region
+        // since it might reference us back.
+        Set<Long> homes = new HashSet<>();
+        List<UUID> references = NBTTagLists.intArraysFrom(compound, "references").stream()
+                .map(ints -> new UUID((long) ints[0] << 32 | ints[1] & 0xFFFFFFFFL, (long) ints[2] << 32 | ints[3] & 0xFFFFFFFFL))
+                .collect(Collectors.toList());
+        for (UUID id : references)
+        {
+            IndexEntry indexEntry = index.get(id);
+            if (indexEntry != null && !entryMap.containsKey(id) && homes.add(ChunkGrid.key(indexEntry.minX, indexEntry.minZ)))
+            {
+                Region home = regions.get(ChunkGrid.key(indexEntry.minX, indexEntry.minZ));
+                NBTTagCompound homeCompound = home == null ? readRegionFile(indexEntry.minX, indexEntry.minZ) : null;
+                if (homeCompound != null)
+                    readEntries(homeCompound, e -> {});
+            }
+
+            Entry entry = entryMap.get(id);
+            if (entry != null)
+                region.index(entry);
+            else
+                dirty = true; // Removed while unloaded
+        }
+
+        region.readCheckedChunks(compound);
+        region.dirty = dirty;
+
+        return region;
+    }
+
+    protected void saveRegion(Region region)
+    {
+        NBTTagCompound compound = new NBTTagCompound();
+
+        region.lock.lock();
+        try
+        {
+            if (!region.dirty)
+                return;
+
+            List<Entry> home = new ArrayList<>();
+            List<int[]> references = new ArrayList<>();
+            region.chunkGrid.visit(region.minX(), region.minZ(), region.maxX(), region.maxZ(), entry ->
+            {
+                IndexEntry indexEntry = index.get(entry.getUuid());
+                if (indexEntry == null || indexEntry.isHome(region.x, region.z))
+                    home.add(entry);
+                else
+                {
+                    UUID id = entry.getUuid();
+                    long most = id.getMostSignificantBits(), least = id.getLeastSignificantBits();
+                    references.add(new int[]{(int) (most >> 32), (int) most, (int) (least >> 32), (int) least});
+                }
+                return true;
+            });
+
+            NBTCompoundObjects.writeListTo(compound, "entries", home.stream().filter(e -> e instanceof StructureEntry).collect(Collectors.toList()));
+            NBTCompoundObjects.writeListTo(compound, "customEntries", home.stream().filter(e -> e instanceof CustomEntry).collect(Collectors.toList()));
+            NBTTagLists.writeIntArraysTo(compound, "references", references);
+
+            region.writeCheckedChunks(compound);
+
+            region.dirty = false;
+        }
+        finally
+        {
+            region.lock.unlock();
+        }
+
+        File file = regionFile(region.x, region.z);
+        File tmp = new File(directory, file.getName() + ".tmp");
+        try
+        {
+            FileUtils.forceMkdir(directory);
+            try (FileOutputStream outputStream = new FileOutputStream(tmp))
+            {
+                CompressedStreamTools.writeCompressed(compound, outputStream);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException e)
+        {
+            RecurrentComplex.logger.error("Error saving structure data region " + file, e);
+            region.dirty = true;
+        }
+    }
+
+    /**
+     * Saves the regions that changed, and drops the clean ones that weren't used since the last call.
+     * The main file only needs to be saved when the index changes, which marks this dirty.
+     */
+    public void saveRegions()
+    {
+        if (directory == null)
+            return;
+
+        for (Region region : regions.values())
+        {
+            saveRegion(region);
+            tryEvict(region);
+        }
+    }
+
+    protected void tryEvict(Region region)
+    {
+        Set<Entry> entries = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        region.lock.lock();
+        try
+        {
+            if (region.dirty || region.used)
+            {
+                region.used = false;
+                return;
+            }
+
+            region.evicted = true;
+            regions.remove(ChunkGrid.key(region.x, region.z), region);
+            region.chunkGrid.visit(region.minX(), region.minZ(), region.maxX(), region.maxZ(), entries::add);
+        }
+        finally
+        {
+            region.lock.unlock();
+        }
+
+        // Keep entries that other loaded regions still hold, they are read from the file again otherwise
+        for (Entry entry : entries)
+        {
+            if (!unplaced.contains(entry) && !isAnyRegionLoaded(entry.getBoundingBox()))
+                entryMap.remove(entry.getUuid(), entry);
+        }
+    }
+
+    protected boolean isAnyRegionLoaded(StructureBoundingBox boundingBox)
+    {
+        for (int x = cell(boundingBox.minX) >> REGION_SHIFT; x <= cell(boundingBox.maxX) >> REGION_SHIFT; x++)
+            for (int z = cell(boundingBox.minZ) >> REGION_SHIFT; z <= cell(boundingBox.maxZ) >> REGION_SHIFT; z++)
+            {
+                if (regions.containsKey(ChunkGrid.key(x, z)))
+                    return true;
+            }
+        return false;
+    }
+
     @Override
     public void readFromNBT(NBTTagCompound compound)
     {
+        regions.clear();
+        index.clear();
+        instanceIndex.clear();
         entryMap.clear();
-        chunkMap.clear();
-        instanceMap.clear();
+        unplaced.clear();
+
+        if (compound.getInteger("version") >= 2)
+        {
+            NBTTagLists.compoundsFrom(compound, "index").forEach(indexCompound ->
+            {
+                IndexEntry indexEntry = new IndexEntry(indexCompound);
+                index.put(indexEntry.uuid, indexEntry);
+                if (indexEntry.structureID != null)
+                    instanceIndex.put(indexEntry.structureID, indexEntry.uuid);
+            });
+
+            readEntries(compound, unplaced::add);
+            return;
+        }
+
+        // Legacy, everything in one file. Regions will be saved separately on the next save.
+        if (compound.getSize() > 0)
+            RecurrentComplex.logger.info("Migrating structure data to regions");
+
         NBTCompoundObjects.readListFrom(compound, "entries", StructureEntry::new).forEach(this::addEntry);
         NBTCompoundObjects.readListFrom(compound, "customEntries", CustomEntry::new).forEach(this::addEntry);
 
-        checkedChunks.clear();
-        NBTTagLists.intArraysFrom(compound, "checkedChunks").forEach(ints -> checkedChunks.add(new ChunkPos(ints[0], ints[1])));
-        checkedChunksFinal.clear();
-        NBTTagLists.intArraysFrom(compound, "checkedChunksFinal").forEach(ints -> checkedChunksFinal.add(new ChunkPos(ints[0], ints[1])));
+        NBTTagLists.intArraysFrom(compound, "checkedChunks").forEach(ints -> checkChunk(new ChunkPos(ints[0], ints[1])));
+        NBTTagLists.intArraysFrom(compound, "checkedChunksFinal").forEach(ints -> checkChunkFinal(new ChunkPos(ints[0], ints[1])));
     }
 
     @Override
     public NBTTagCompound writeToNBT(NBTTagCompound compound)
     {
-        NBTCompoundObjects.writeListTo(compound, "entries", entryMap.values().stream().filter(e -> e instanceof StructureEntry).collect(Collectors.toList()));
-        NBTCompoundObjects.writeListTo(compound, "customEntries", entryMap.values().stream().filter(e -> e instanceof CustomEntry).collect(Collectors.toList()));
+        if (directory == null)
+        {
+            // Can't shard, everything is in memory anyway
+            NBTCompoundObjects.writeListTo(compound, "entries", entryMap.values().stream().filter(e -> e instanceof StructureEntry).collect(Collectors.toList()));
+            NBTCompoundObjects.writeListTo(compound, "customEntries", entryMap.values().stream().filter(e -> e instanceof CustomEntry).collect(Collectors.toList()));
 
-        NBTTagLists.writeIntArraysTo(compound, "checkedChunks", checkedChunks.stream().map(c -> new int[]{c.x, c.z}).collect(Collectors.toList()));
-        NBTTagLists.writeIntArraysTo(compound, "checkedChunksFinal", checkedChunksFinal.stream().map(c -> new int[]{c.x, c.z}).collect(Collectors.toList()));
+            List<int[]> checkedChunks = new ArrayList<>();
+            List<int[]> checkedChunksFinal = new ArrayList<>();
+            for (Region region : regions.values())
+            {
+                region.lock.lock();
+                try
+                {
+                    region.forEachChecked(region.checkedChunks, c -> checkedChunks.add(new int[]{c.x, c.z}));
+                    region.forEachChecked(region.checkedChunksFinal, c -> checkedChunksFinal.add(new int[]{c.x, c.z}));
+                }
+                finally
+                {
+                    region.lock.unlock();
+                }
+            }
+
+            NBTTagLists.writeIntArraysTo(compound, "checkedChunks", checkedChunks);
+            NBTTagLists.writeIntArraysTo(compound, "checkedChunksFinal", checkedChunksFinal);
+
+            return compound;
+        }
+
+        saveRegions();
+
+        compound.setInteger("version", VERSION);
+        NBTTagLists.writeTo(compound, "index", index.values().stream().map(IndexEntry::writeToNBT).collect(Collectors.toList()));
+        NBTCompoundObjects.writeListTo(compound, "entries", unplaced.stream().filter(e -> e instanceof StructureEntry).collect(Collectors.toList()));
+        NBTCompoundObjects.writeListTo(compound, "customEntries", unplaced.stream().filter(e -> e instanceof CustomEntry).collect(Collectors.toList()));
 
         return compound;
     }
 
+    /**
+     * A square of chunks with its own lock, so chunks far apart can be decorated concurrently.
+     * Each region is saved into its own file, and only if it changed.
+     */
+    protected static class Region
+    {
+        public final int x, z;
+
+        public final ReentrantLock lock = new ReentrantLock();
+        public volatile boolean dirty;
+
+        // Used since the last save, and thrown out of the region map
+        public volatile boolean used;
+        public volatile boolean evicted;
+
+        public final ChunkGrid<Entry> chunkGrid = new ChunkGrid<>();
+
+        // One bit per chunk
+        public final int[] checkedChunks = new int[REGION_SIZE * REGION_SIZE / Integer.SIZE];
+        public final int[] checkedChunksFinal = new int[REGION_SIZE * REGION_SIZE / Integer.SIZE];
+
+        public Region(int x, int z)
+        {
+            this.x = x;
+            this.z = z;
+        }
+
+        public int minX()
+        {
+            return x << REGION_SHIFT;
+        }
+
+        public int minZ()
+        {
+            return z << REGION_SHIFT;
+        }
+
+        public int maxX()
+        {
+            return ((x + 1) << REGION_SHIFT) - 1;
+        }
+
+        public int maxZ()
+        {
+            return ((z + 1) << REGION_SHIFT) - 1;
+        }
+
+        public boolean contains(ChunkPos chunkPos)
+        {
+            return chunkPos.x >> REGION_SHIFT == x && chunkPos.z >> REGION_SHIFT == z;
+        }
+
+        public void index(Entry entry)
+        {
+            StructureBoundingBox bb = entry.getBoundingBox();
+            chunkGrid.add(entry, Math.max(cell(bb.minX), minX()), Math.max(cell(bb.minZ), minZ()),
+                    Math.min(cell(bb.maxX), maxX()), Math.min(cell(bb.maxZ), maxZ()));
+            dirty = true;
+        }
+
+        public void unindex(Entry entry)
+        {
+            StructureBoundingBox bb = entry.getBoundingBox();
+            chunkGrid.remove(entry, Math.max(cell(bb.minX), minX()), Math.max(cell(bb.minZ), minZ()),
+                    Math.min(cell(bb.maxX), maxX()), Math.min(cell(bb.maxZ), maxZ()));
+            dirty = true;
+        }
+
+        protected int bit(ChunkPos chunkPos)
+        {
+            return ((chunkPos.x - minX()) << REGION_SHIFT) | (chunkPos.z - minZ());
+        }
+
+        public boolean isChecked(int[] bits, ChunkPos chunkPos)
+        {
+            int bit = bit(chunkPos);
+            return (bits[bit >>> 5] & (1 << bit)) != 0;
+        }
+
+        /**
+         * @return true if the chunk wasn't checked before
+         */
+        public boolean check(int[] bits, ChunkPos chunkPos)
+        {
+            int bit = bit(chunkPos);
+            int mask = 1 << bit;
+
+            if ((bits[bit >>> 5] & mask) != 0)
+                return false;
+
+            bits[bit >>> 5] |= mask;
+            return true;
+        }
+
+        public void forEachChecked(int[] bits, Consumer<ChunkPos> consumer)
+        {
+            for (int bit = 0; bit < bits.length * Integer.SIZE; bit++)
+            {
+                if ((bits[bit >>> 5] & (1 << bit)) != 0)
+                    consumer.accept(new ChunkPos(minX() + (bit >> REGION_SHIFT), minZ() + (bit & (REGION_SIZE - 1))));
+            }
+        }
+
+        protected void readChecked(NBTTagCompound compound, String key, int[] bits)
+        {
+            if (compound.hasKey(key, Constants.NBT.TAG_INT_ARRAY))
+            {
+                int[] read = compound.getIntArray(key);
+                System.arraycopy(read, 0, bits, 0, Math.min(read.length, bits.length));
+            }
+            else // Legacy
+                NBTTagLists.intArraysFrom(compound, key).forEach(ints -> check(bits, new ChunkPos(ints[0], ints[1])));
+        }
+
+        public void readCheckedChunks(NBTTagCompound compound)
+        {
+            readChecked(compound, "checkedChunks", checkedChunks);
+            readChecked(compound, "checkedChunksFinal", checkedChunksFinal);
+        }
+
+        public void writeCheckedChunks(NBTTagCompound compound)
+        {
+            compound.setIntArray("checkedChunks", checkedChunks.clone());
+            compound.setIntArray("checkedChunksFinal", checkedChunksFinal.clone());
+        }
+    }
+
+    /**
+     * What is always known about an entry, even if its regions aren't loaded.
+     */
+    protected static class IndexEntry
+    {
+        public final UUID uuid;
+        @Nullable
+        public final String structureID;
+
+        // The entry is saved in the min region, all others just reference it
+        public final int minX, minZ;
+
+        public IndexEntry(Entry entry)
+        {
+            uuid = entry.getUuid();
+            structureID = entry instanceof StructureEntry ? ((StructureEntry) entry).getStructureID() : null;
+
+            StructureBoundingBox bb = entry.getBoundingBox();
+            minX = bb != null ? cell(bb.minX) >> REGION_SHIFT : 0;
+            minZ = bb != null ? cell(bb.minZ) >> REGION_SHIFT : 0;
+        }
+
+        public IndexEntry(NBTTagCompound compound)
+        {
+            uuid = new UUID(compound.getLong("UUIDMS"), compound.getLong("UUIDLS"));
+            structureID = compound.hasKey("structureID", Constants.NBT.TAG_STRING) ? compound.getString("structureID") : null;
+            minX = compound.getInteger("regionX");
+            minZ = compound.getInteger("regionZ");
+        }
+
+        public boolean isHome(int x, int z)
+        {
+            return minX == x && minZ == z;
+        }
+
+        public NBTTagCompound writeToNBT()
+        {
+            NBTTagCompound compound = new NBTTagCompound();
+            compound.setLong("UUIDMS", uuid.getMostSignificantBits());
+            compound.setLong("UUIDLS", uuid.getLeastSignificantBits());
+            if (structureID != null)
+                compound.setString("structureID", structureID);
+            compound.setInteger("regionX", minX);
+            compound.setInteger("regionZ", minZ);
+            return compound;
+        }
+    }
+
     public static abstract class Entry implements NBTCompoundObject
     {
         @Nonnull
@@ -248,7 +991,7 @@ public class WorldStructureGenerationData extends WorldSavedData
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
 
-            StructureEntry entry = (StructureEntry) o;
+            Entry entry = (Entry) o;
 
             return uuid.equals(entry.uuid);
         }
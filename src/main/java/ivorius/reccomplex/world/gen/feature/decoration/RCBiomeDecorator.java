@@ -17,6 +17,7 @@ import ivorius.reccomplex.world.gen.feature.structure.Structure;
 import ivorius.reccomplex.world.gen.feature.structure.StructureRegistry;
 import ivorius.reccomplex.world.gen.feature.structure.context.StructureSpawnContext;
 import ivorius.reccomplex.world.gen.feature.structure.generic.generation.VanillaDecorationGeneration;
+import ivorius.reccomplex.world.gen.feature.structure.generic.placement.PlacementCache;
 import net.minecraft.init.Biomes;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
@@ -154,11 +155,14 @@ public class RCBiomeDecorator
         // When the chance is low, we don't give back to vanilla to try once again, to avoid double the spawn rate
         if (rcAmount <= 0 && mayGiveUp) return -1;
 
-        for (int i = 0; i < rcAmount; i++)
+        try (PlacementCache ignored = PlacementCache.open(worldIn))
         {
-            for (int t = 0; t < STRUCTURE_TRIES; t++)
-                if (generate(selector.selectOne(random, type, totalWeight), worldIn, chunkPos, random))
-                    break;
+            for (int i = 0; i < rcAmount; i++)
+            {
+                for (int t = 0; t < STRUCTURE_TRIES; t++)
+                    if (generate(selector.selectOne(random, type, totalWeight), worldIn, chunkPos, random))
+                        break;
+            }
         }
 
         return vanillaAmount - rcAmount;
@@ -5,14 +5,16 @@
 
 package ivorius.reccomplex.world.gen.feature.selector;
 
-import net.minecraft.util.ResourceLocation;
+import ivorius.reccomplex.RecurrentComplex;
+import ivorius.reccomplex.dimensions.DimensionDictionary;
 import net.minecraft.world.WorldProvider;
 import net.minecraft.world.biome.Biome;
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 
 /**
@@ -20,7 +22,10 @@ import java.util.function.BiFunction;
  */
 public class CachedStructureSelectors<S extends StructureSelector>
 {
-    private Map<Pair<Integer, ResourceLocation>, S> structureSelectors = new HashMap<>();
+    // Biomes are singletons, so we can key by identity without allocating lookup keys
+    private final ConcurrentMap<Integer, ConcurrentMap<Biome, Cached<S>>> structureSelectors = new ConcurrentHashMap<>();
+
+    private final AtomicInteger version = new AtomicInteger();
 
     private BiFunction<Biome, WorldProvider, S> selectorSupplier;
 
@@ -31,20 +36,81 @@ public class CachedStructureSelectors<S extends StructureSelector>
 
     public S get(Biome biome, WorldProvider provider)
     {
-        Pair<Integer, ResourceLocation> pair = new ImmutablePair<>(provider.getDimension(), Biome.REGISTRY.getNameForObject(biome));
-        S structureSelector = structureSelectors.get(pair);
+        ConcurrentMap<Biome, Cached<S>> dimension = structureSelectors.computeIfAbsent(provider.getDimension(), k -> new ConcurrentHashMap<>());
+        Cached<S> cached = dimension.get(biome);
 
-        if (structureSelector == null || !structureSelector.isValid(biome, provider))
-        {
-            structureSelector = selectorSupplier.apply(biome, provider);
-            structureSelectors.put(pair, structureSelector);
-        }
+        if (cached == null || !cached.isValid(biome, provider))
+            cached = build(biome, provider, version.get());
+
+        return cached.selector;
+    }
+
+    protected Cached<S> build(Biome biome, WorldProvider provider, int version)
+    {
+        int dimensionVersion = DimensionDictionary.getVersion();
+        Cached<S> cached = new Cached<>(selectorSupplier.apply(biome, provider), dimensionVersion);
+
+        // Otherwise we were cleared in the meantime and are outdated
+        if (this.version.get() == version)
+            structureSelectors.computeIfAbsent(provider.getDimension(), k -> new ConcurrentHashMap<>()).put(biome, cached);
 
-        return structureSelector;
+        return cached;
+    }
+
+    /**
+     * Builds selectors for every biome in the given dimensions, so that generation doesn't have to.
+     */
+    public void warmup(Collection<WorldProvider> providers, Executor executor)
+    {
+        int version = this.version.get();
+
+        for (WorldProvider provider : providers)
+            for (Biome biome : Biome.REGISTRY)
+            {
+                executor.execute(() ->
+                {
+                    if (this.version.get() != version)
+                        return;
+
+                    ConcurrentMap<Biome, Cached<S>> dimension = structureSelectors.get(provider.getDimension());
+                    Cached<S> cached = dimension != null ? dimension.get(biome) : null;
+
+                    try
+                    {
+                        if (cached == null || !cached.isValid(biome, provider))
+                            build(biome, provider, version);
+                    }
+                    catch (Exception e)
+                    {
+                        RecurrentComplex.logger.error("Error warming up structure selector for " + biome.getBiomeName(), e);
+                    }
+                });
+            }
     }
 
     public void clear()
     {
+        version.incrementAndGet();
         structureSelectors.clear();
     }
+
+    protected static class Cached<S extends StructureSelector>
+    {
+        public final S selector;
+        public final int dimensionVersion;
+
+        public Cached(S selector, int dimensionVersion)
+        {
+            this.selector = selector;
+            this.dimensionVersion = dimensionVersion;
+        }
+
+        public boolean isValid(Biome biome, WorldProvider provider)
+        {
+            // Handlers may change their types at any time, otherwise we only need to check on registry changes
+            return provider instanceof DimensionDictionary.Handler
+                    ? selector.isValid(biome, provider)
+                    : dimensionVersion == DimensionDictionary.getVersion();
+        }
+    }
 }
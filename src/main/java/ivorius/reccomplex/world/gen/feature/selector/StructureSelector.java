@@ -12,6 +12,7 @@ import gnu.trove.map.hash.TObjectDoubleHashMap;
 import ivorius.ivtoolkit.random.WeightedSelector;
 import ivorius.reccomplex.RCConfig;
 import ivorius.reccomplex.dimensions.DimensionDictionary;
+import ivorius.reccomplex.utils.AliasTable;
 import ivorius.reccomplex.world.gen.feature.structure.Structure;
 import ivorius.reccomplex.world.gen.feature.structure.generic.WeightedBiomeMatcher;
 import ivorius.reccomplex.world.gen.feature.structure.generic.WeightedDimensionMatcher;
@@ -34,11 +35,13 @@ public class StructureSelector<T extends GenerationType & EnvironmentalSelection
 
     protected Multimap<C, WeightedSelector.SimpleItem<Pair<Structure<?>, T>>> weightedStructureInfos = ArrayListMultimap.create();
     protected TObjectDoubleMap<C> totalWeights = new TObjectDoubleHashMap<>();
+    protected Map<C, AliasTable<Pair<Structure<?>, T>>> aliasTables = new HashMap<>();
 
     public StructureSelector(Map<String, Structure<?>> structures, WorldProvider provider, Biome biome, Class<T> typeClass)
     {
         cachedDimensionTypes.addAll(DimensionDictionary.getDimensionTypes(provider));
 
+        Map<C, AliasTable.Builder<Pair<Structure<?>, T>>> builders = new HashMap<>();
         for (Map.Entry<String, Structure<?>> entry : structures.entrySet())
         {
             float tweaked = RCConfig.tweakedSpawnRate(entry.getKey());
@@ -48,11 +51,15 @@ public class StructureSelector<T extends GenerationType & EnvironmentalSelection
 
                 if (generationWeight > 0)
                 {
-                    weightedStructureInfos.put(selection.generationCategory(), new WeightedSelector.SimpleItem<>(generationWeight, Pair.of(entry.getValue(), selection)));
+                    Pair<Structure<?>, T> pair = Pair.of(entry.getValue(), selection);
+                    weightedStructureInfos.put(selection.generationCategory(), new WeightedSelector.SimpleItem<>(generationWeight, pair));
                     totalWeights.adjustOrPutValue(selection.generationCategory(), generationWeight, generationWeight);
+                    builders.computeIfAbsent(selection.generationCategory(), c -> new AliasTable.Builder<>()).add(generationWeight, pair);
                 }
             }
         }
+
+        builders.forEach((c, builder) -> aliasTables.put(c, builder.build()));
     }
 
     public static double generationWeight(WorldProvider provider, Biome biome, PresettedList<WeightedBiomeMatcher> biomeWeights, PresettedList<WeightedDimensionMatcher> dimensionWeights)
@@ -97,7 +104,14 @@ public class StructureSelector<T extends GenerationType & EnvironmentalSelection
     @Nullable
     public Pair<Structure<?>, T> selectOne(Random random, @Nonnull C c, double totalWeight)
     {
-        return totalWeight > 0 ? WeightedSelector.select(random, weightedStructureInfos.get(c)) : null;
+        return totalWeight > 0 ? select(random, c) : null;
+    }
+
+    @Nullable
+    protected Pair<Structure<?>, T> select(Random random, @Nonnull C c)
+    {
+        AliasTable<Pair<Structure<?>, T>> table = aliasTables.get(c);
+        return table != null ? table.select(random) : null;
     }
 
     public boolean isValid(Biome biome, WorldProvider provider)
@@ -5,14 +5,21 @@
 
 package ivorius.reccomplex.world.gen.feature.structure;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import ivorius.reccomplex.RCConfig;
 import ivorius.reccomplex.files.SimpleLeveledRegistry;
 import ivorius.reccomplex.json.SerializableStringTypeRegistry;
 import ivorius.reccomplex.world.gen.feature.structure.generic.generation.GenerationType;
+import ivorius.reccomplex.world.gen.feature.structure.generic.generation.NaturalGeneration;
+import ivorius.reccomplex.world.gen.feature.structure.generic.generation.VanillaDecorationGeneration;
 import ivorius.reccomplex.world.gen.feature.structure.generic.transformers.Transformer;
+import net.minecraft.world.WorldProvider;
+import net.minecraftforge.common.DimensionManager;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -27,6 +34,8 @@ public class StructureRegistry extends SimpleLeveledRegistry<Structure<?>>
 
     private Map<Class<? extends GenerationType>, Collection<Pair<Structure<?>, ? extends GenerationType>>> cachedGeneration = new HashMap<>();
 
+    private ExecutorService warmupExecutor;
+
     public StructureRegistry()
     {
         super("structure");
@@ -60,6 +69,24 @@ public class StructureRegistry extends SimpleLeveledRegistry<Structure<?>>
         return pairs;
     }
 
+    /**
+     * Builds the structure selectors of all biomes in all loaded dimensions in the background.
+     */
+    public void warmupSelectors()
+    {
+        List<WorldProvider> providers = Arrays.stream(DimensionManager.getWorlds()).map(world -> world.provider).collect(Collectors.toList());
+        if (providers.isEmpty())
+            return;
+
+        if (warmupExecutor == null)
+            warmupExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ReC Selector Warmup").build());
+
+        activeMap(); // Build the active cache here rather than on the executor
+
+        NaturalGeneration.selectors(this).warmup(providers, warmupExecutor);
+        VanillaDecorationGeneration.selectors(this).warmup(providers, warmupExecutor);
+    }
+
     @Override
     protected void invalidateCaches()
     {
@@ -12,6 +12,7 @@ import ivorius.reccomplex.RecurrentComplex;
 import ivorius.reccomplex.utils.RCAxisAlignedTransform;
 import ivorius.reccomplex.utils.RCBlockAreas;
 import ivorius.reccomplex.utils.RCStructureBoundingBoxes;
+import ivorius.reccomplex.world.gen.feature.ChunkSectionWriter;
 import ivorius.reccomplex.world.gen.feature.HeightMapFreezer;
 import ivorius.reccomplex.world.gen.feature.structure.Environment;
 import net.minecraft.block.state.IBlockState;
@@ -43,6 +44,7 @@ public class StructureSpawnContext extends StructureLiveContext
     public final GenerateMaturity generateMaturity;
 
     private HeightMapFreezer heightMapFreezer;
+    private ChunkSectionWriter sectionWriter;
 
     public StructureSpawnContext(@Nonnull Environment environment, @Nonnull Random random, @Nonnull AxisAlignedTransform2D transform, @Nonnull StructureBoundingBox boundingBox, @Nullable StructureBoundingBox generationBB, Predicate<Vec3i> generationPredicate, int generationLayer, boolean generateAsSource, GenerateMaturity generateMaturity)
     {
@@ -97,7 +99,10 @@ public class StructureSpawnContext extends StructureLiveContext
         if (includes(pos))
         {
             // world.setBlock returns false on 'no change'
-            environment.world.setBlockState(pos.toImmutable(), state, flag);
+            if (sectionWriter != null)
+                sectionWriter.setBlockState(pos.toImmutable(), state, flag);
+            else
+                environment.world.setBlockState(pos.toImmutable(), state, flag);
             if (heightMapFreezer != null) heightMapFreezer.markBlock(pos, state);
             return true;
         }
@@ -108,12 +113,18 @@ public class StructureSpawnContext extends StructureLiveContext
     public void freezeHeightMap(StructureBoundingBox boundingBox)
     {
         heightMapFreezer = HeightMapFreezer.freeze(boundingBox, environment.world);
+        // The freezer relights the columns from above when melting
+        sectionWriter = new ChunkSectionWriter(environment.world, false);
     }
 
     public void meltHeightMap()
     {
         heightMapFreezer.melt();
         heightMapFreezer = null;
+
+        // After melting, so that light spreads from the final height maps
+        sectionWriter.close();
+        sectionWriter = null;
     }
 
     public enum GenerateMaturity
@@ -5,6 +5,8 @@
 
 package ivorius.reccomplex.world.gen.feature.structure.generic;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.*;
 import ivorius.ivtoolkit.blocks.BlockAreas;
 import ivorius.ivtoolkit.blocks.IvBlockCollection;
@@ -15,6 +17,7 @@ import ivorius.ivtoolkit.tools.NBTCompoundObjects;
 import ivorius.ivtoolkit.transform.Mover;
 import ivorius.ivtoolkit.transform.PosTransformer;
 import ivorius.ivtoolkit.world.chunk.gen.StructureBoundingBoxes;
+import ivorius.reccomplex.RCConfig;
 import ivorius.reccomplex.RecurrentComplex;
 import ivorius.reccomplex.block.GeneratingTileEntity;
 import ivorius.reccomplex.json.JsonUtils;
@@ -39,6 +42,7 @@ import ivorius.reccomplex.world.gen.feature.structure.generic.generation.Generat
 import ivorius.reccomplex.world.gen.feature.structure.generic.generation.MazeGeneration;
 import ivorius.reccomplex.world.gen.feature.structure.generic.generation.NaturalGeneration;
 import ivorius.reccomplex.world.gen.feature.structure.generic.transformers.RunTransformer;
+import ivorius.reccomplex.world.gen.feature.structure.generic.transformers.SkipMask;
 import ivorius.reccomplex.world.gen.feature.structure.generic.transformers.Transformer;
 import ivorius.reccomplex.world.gen.feature.structure.generic.transformers.TransformerMulti;
 import ivorius.reccomplex.world.storage.loot.LootGenerationHandler;
@@ -62,8 +66,11 @@ import net.minecraftforge.common.util.Constants;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -80,7 +87,13 @@ public class GenericStructure implements Structure<GenericStructure.InstanceData
     public TransformerMulti transformer = new TransformerMulti();
     public final DependencyExpression dependencies = new DependencyExpression();
 
-    public NBTTagCompound worldDataCompound;
+    private volatile NBTTagCompound worldDataCompound;
+    @Nullable
+    private WorldDataSource worldDataSource;
+    @Nullable
+    private int[] worldDataSize;
+    @Nullable
+    private volatile SoftReference<NBTTagCompound> loadedWorldData;
 
     public boolean rotatable;
     public boolean mirrorable;
@@ -92,6 +105,9 @@ public class GenericStructure implements Structure<GenericStructure.InstanceData
 
     public JsonObject customData;
 
+    // Complementing a structure loads the same instance data for every chunk it touches
+    private final Cache<NBTBase, SkipMask> skipMasks = CacheBuilder.newBuilder().weakKeys().maximumSize(32).build();
+
     public static GenericStructure createDefaultStructure()
     {
         GenericStructure genericStructureInfo = new GenericStructure();
@@ -162,14 +178,92 @@ public class GenericStructure implements Structure<GenericStructure.InstanceData
     public static void generateTileEntityContents(@Nonnull StructureSpawnContext context, TileEntity tileEntity)
     {
         if (!context.generateAsSource && ItemHandlers.hasModifiable(tileEntity, null))
-            LootGenerationHandler.generateAllTags(context, ItemHandlers.getModifiable(tileEntity, null));
+        {
+            if (RCConfig.deferLootGeneration)
+                LootGenerationHandler.deferAllTags(context, tileEntity, ItemHandlers.getModifiable(tileEntity, null));
+            else
+                LootGenerationHandler.generateAllTags(context, ItemHandlers.getModifiable(tileEntity, null));
+        }
     }
 
     @Nonnull
     @Override
     public int[] size()
     {
-        return Structures.size(worldDataCompound, new int[]{0, 0, 0});
+        int[] size = worldDataSize;
+        if (size != null)
+            return size.clone();
+
+        return Structures.size(worldDataCompound(), new int[]{0, 0, 0});
+    }
+
+    /**
+     * @return The world data, loaded from its source first if necessary.
+     */
+    public NBTTagCompound worldDataCompound()
+    {
+        NBTTagCompound compound = worldDataCompound;
+        if (compound != null || worldDataSource == null)
+            return compound;
+
+        SoftReference<NBTTagCompound> loaded = loadedWorldData;
+        compound = loaded != null ? loaded.get() : null;
+        return compound != null ? compound : loadWorldData();
+    }
+
+    protected synchronized NBTTagCompound loadWorldData()
+    {
+        // Check again, someone might have been faster
+        if (worldDataCompound != null || worldDataSource == null)
+            return worldDataCompound;
+
+        NBTTagCompound compound = loadedWorldData != null ? loadedWorldData.get() : null;
+        if (compound != null)
+            return compound;
+
+        try
+        {
+            compound = worldDataSource.load();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Could not load world data of structure " + this, e);
+        }
+
+        // In lazy mode, the data may be dropped again when memory runs low since we can always re-load it
+        if (RCConfig.lazyStructureWorldData)
+            loadedWorldData = new SoftReference<>(compound);
+        else
+            worldDataCompound = compound;
+
+        return compound;
+    }
+
+    public synchronized void setWorldDataCompound(NBTTagCompound worldDataCompound)
+    {
+        this.worldDataCompound = worldDataCompound;
+        this.worldDataSource = null;
+        this.worldDataSize = null;
+        this.loadedWorldData = null;
+    }
+
+    /**
+     * Defers loading the world data until it is first needed.
+     *
+     * @param size The size of the structure, known without loading the world data.
+     */
+    public synchronized void setWorldDataSource(WorldDataSource source, int[] size)
+    {
+        this.worldDataCompound = null;
+        this.worldDataSource = source;
+        this.worldDataSize = size.clone();
+        this.loadedWorldData = null;
+    }
+
+    public boolean isWorldDataLoaded()
+    {
+        SoftReference<NBTTagCompound> loaded = loadedWorldData;
+        return worldDataCompound != null || worldDataSource == null || (loaded != null && loaded.get() != null);
     }
 
     @Override
@@ -194,7 +288,7 @@ public class GenericStructure implements Structure<GenericStructure.InstanceData
     public void generate(@Nonnull final StructureSpawnContext context, @Nonnull InstanceData instanceData, @Nonnull TransformerMulti foreignTransformer)
     {
         WorldServer world = context.environment.world;
-        IvWorldData worldData = constructWorldData();
+        IvWorldData worldData = worldData();
         boolean asSource = context.generateAsSource;
 
         RunTransformer transformer = getRunTransformer(instanceData, foreignTransformer, asSource);
@@ -239,7 +333,7 @@ public class GenericStructure implements Structure<GenericStructure.InstanceData
                     {
                         IBlockState state = PosTransformer.transformBlockState(blockCollection.getBlockState(sourcePos), context.transform);
 
-                        if (pass == getPass(state) && (transformer == null || !transformer.transformer.skipGeneration(transformer.instanceData, context, worldPos, state, worldData, sourcePos)))
+                        if (pass == getPass(state) && (transformer == null || !transformer.skipGeneration(context, worldPos, state, worldData, sourcePos)))
                         {
                             GeneratingTileEntity<?> generatingTE = generatingTEs.get(sourcePos);
 
@@ -314,10 +408,10 @@ public class GenericStructure implements Structure<GenericStructure.InstanceData
         if (!foreignTransformer.isEmpty(instanceData.foreignTransformerData))
         {
             TransformerMulti fused = TransformerMulti.fuse(Arrays.asList(this.transformer, foreignTransformer));
-            return new RunTransformer(fused, fused.fuseDatas(Arrays.asList(instanceData.transformerData, instanceData.foreignTransformerData)));
+            return new RunTransformer(fused, fused.fuseDatas(Arrays.asList(instanceData.transformerData, instanceData.foreignTransformerData)), instanceData.skipMask);
         }
 
-        return new RunTransformer(this.transformer, instanceData.transformerData);
+        return new RunTransformer(this.transformer, instanceData.transformerData, instanceData.skipMask);
     }
 
     @Nullable
@@ -328,7 +422,7 @@ public class GenericStructure implements Structure<GenericStructure.InstanceData
 
         if (!context.generateAsSource)
         {
-            IvWorldData worldData = constructWorldData();
+            IvWorldData worldData = worldData();
             IvBlockCollection blockCollection = worldData.blockCollection;
 
             int[] areaSize = new int[]{blockCollection.width, blockCollection.height, blockCollection.length};
@@ -349,6 +443,8 @@ public class GenericStructure implements Structure<GenericStructure.InstanceData
             RunTransformer runTransformer = new RunTransformer(transformer, cInstanceData);
             transformer.configureInstanceData(cInstanceData, context, worldData, runTransformer);
 
+            instanceData.skipMask = SkipMask.compute(transformer, cInstanceData, worldData, context.transform);
+
             worldData.tileEntities.forEach(tileEntityCompound ->
             {
                 asGeneratingTileEntity(context, IvTileEntityHelper.getAnyWorld(), areaSize, origin, tileEntityCompound, (src, tileEntity) ->
@@ -367,14 +463,44 @@ public class GenericStructure implements Structure<GenericStructure.InstanceData
     @Override
     public InstanceData loadInstanceData(@Nonnull StructureLoadContext context, @Nonnull final NBTBase nbt, @Nonnull TransformerMulti transformer)
     {
+        IvWorldData worldData = worldData();
         InstanceData instanceData = new InstanceData();
-        instanceData.readFromNBT(context, nbt, this.transformer, transformer, constructWorldData());
+        instanceData.readFromNBT(context, nbt, this.transformer, transformer, worldData);
+
+        if (!context.generateAsSource && instanceData.transformerData != null && instanceData.foreignTransformerData != null)
+        {
+            try
+            {
+                instanceData.skipMask = skipMasks.get(nbt, () ->
+                {
+                    TransformerMulti fused = TransformerMulti.fuse(Arrays.asList(this.transformer, transformer));
+                    TransformerMulti.InstanceData fusedData = fused.fuseDatas(Arrays.asList(instanceData.transformerData, instanceData.foreignTransformerData));
+                    return SkipMask.compute(fused, fusedData, worldData, context.transform);
+                });
+            }
+            catch (ExecutionException e)
+            {
+                RecurrentComplex.logger.error("Error computing skipped blocks of " + this, e);
+            }
+        }
+
         return instanceData;
     }
 
+    /**
+     * @return A newly decoded copy of the world data, free to be modified.
+     */
     public IvWorldData constructWorldData()
     {
-        return new IvWorldData(worldDataCompound, RecurrentComplex.specialRegistry.itemHidingMode());
+        return new IvWorldData(worldDataCompound(), RecurrentComplex.specialRegistry.itemHidingMode());
+    }
+
+    /**
+     * @return The shared, cached world data. Do not modify!
+     */
+    public IvWorldData worldData()
+    {
+        return WorldDataCache.INSTANCE.get(this);
     }
 
     @Nonnull
@@ -419,7 +545,7 @@ public class GenericStructure implements Structure<GenericStructure.InstanceData
     @Override
     public IvBlockCollection blockCollection()
     {
-        return constructWorldData().blockCollection;
+        return worldData().blockCollection;
     }
 
     @Nonnull
@@ -447,7 +573,13 @@ public class GenericStructure implements Structure<GenericStructure.InstanceData
     public GenericStructure copy()
     {
         return StructureSaveHandler.INSTANCE.fromJSON(StructureSaveHandler.INSTANCE.toJSON(this),
-                worldDataCompound.copy());
+                worldDataCompound().copy());
+    }
+
+    @FunctionalInterface
+    public interface WorldDataSource
+    {
+        NBTTagCompound load() throws IOException;
     }
 
     public static class Serializer implements JsonDeserializer<GenericStructure>, JsonSerializer<GenericStructure>
@@ -506,9 +638,9 @@ public class GenericStructure implements Structure<GenericStructure.InstanceData
                 structureInfo.dependencies.setExpression(DependencyExpression.ofMods(context.<String[]>deserialize(jsonObject.get("dependencies"), String[].class)));
 
             if (jsonObject.has("worldData"))
-                structureInfo.worldDataCompound = context.deserialize(jsonObject.get("worldData"), NBTTagCompound.class);
+                structureInfo.setWorldDataCompound(context.deserialize(jsonObject.get("worldData"), NBTTagCompound.class));
             else if (jsonObject.has("worldDataBase64"))
-                structureInfo.worldDataCompound = NBTToJson.getNBTFromBase64(JsonUtils.getString(jsonObject, "worldDataBase64"));
+                structureInfo.setWorldDataCompound(NBTToJson.getNBTFromBase64(JsonUtils.getString(jsonObject, "worldDataBase64")));
             // And else it is taken out for packet size, or stored in the zip
 
             if (jsonObject.has("metadata")) // Else, use default
@@ -536,12 +668,13 @@ public class GenericStructure implements Structure<GenericStructure.InstanceData
 
             jsonObject.add("dependencyExpression", context.serialize(structureInfo.dependencies.getExpression()));
 
-            if (!RecurrentComplex.USE_ZIP_FOR_STRUCTURE_FILES && structureInfo.worldDataCompound != null)
+            NBTTagCompound worldDataCompound = !RecurrentComplex.USE_ZIP_FOR_STRUCTURE_FILES ? structureInfo.worldDataCompound() : null;
+            if (worldDataCompound != null)
             {
                 if (RecurrentComplex.USE_JSON_FOR_NBT)
-                    jsonObject.add("worldData", context.serialize(structureInfo.worldDataCompound));
+                    jsonObject.add("worldData", context.serialize(worldDataCompound));
                 else
-                    jsonObject.addProperty("worldDataBase64", NBTToJson.getBase64FromNBT(structureInfo.worldDataCompound));
+                    jsonObject.addProperty("worldDataBase64", NBTToJson.getBase64FromNBT(worldDataCompound));
             }
 
             jsonObject.add("metadata", context.serialize(structureInfo.metadata));
@@ -563,6 +696,10 @@ public class GenericStructure implements Structure<GenericStructure.InstanceData
         public TransformerMulti.InstanceData foreignTransformerData;
         public final Map<BlockPos, NBTStorable> tileEntities = new HashMap<>();
 
+        // Not saved, derived from the transformer data
+        @Nullable
+        public SkipMask skipMask;
+
         protected static NBTBase getTileEntityTag(NBTTagCompound tileEntityCompound, BlockPos coord)
         {
             return tileEntityCompound.getTag(getTileEntityKey(coord));
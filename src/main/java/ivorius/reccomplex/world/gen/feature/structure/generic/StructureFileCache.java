@@ -0,0 +1,206 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.world.gen.feature.structure.generic;
+
+import ivorius.reccomplex.RecurrentComplex;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the JSON and size of structure files, keyed by their path, size and modification date.
+ * Unchanged structures can then be loaded without inflating their zip or decoding their block data,
+ * which is loaded from the structure file only once it is needed.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class StructureFileCache
+{
+    public static final int VERSION = 1;
+    public static final String FILE_NAME = "reccomplex-structures.dat";
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private boolean loaded;
+    private volatile boolean dirty;
+
+    public static String key(Path path)
+    {
+        return path.toUri().toString();
+    }
+
+    public static File getFile()
+    {
+        return new File(new File(RecurrentComplex.proxy.getDataDirectory(), "cache"), FILE_NAME);
+    }
+
+    @Nullable
+    public Entry get(Path path, BasicFileAttributes attributes)
+    {
+        ensureLoaded();
+
+        String key = key(path);
+        Entry entry = entries.get(key);
+
+        return entry != null && entry.matches(attributes) ? entry : null;
+    }
+
+    public void put(Path path, BasicFileAttributes attributes, String json, int[] size)
+    {
+        ensureLoaded();
+
+        String key = key(path);
+        entries.put(key, new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), json, size));
+        dirty = true;
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+        loaded = true;
+        dirty = true;
+    }
+
+    /**
+     * @return Whether the file (or, for zipped files, the zip) the key was created from doesn't exist anymore.
+     */
+    protected static boolean isRemoved(String key)
+    {
+        try
+        {
+            URI uri = URI.create(key);
+            if (uri.getScheme().equals("jar"))
+                uri = URI.create(key.substring("jar:".length(), key.indexOf("!/")));
+
+            return uri.getScheme().equals("file") && !Files.exists(Paths.get(uri));
+        }
+        catch (Exception e)
+        {
+            return true;
+        }
+    }
+
+    protected synchronized void ensureLoaded()
+    {
+        if (loaded)
+            return;
+        loaded = true;
+
+        File file = getFile();
+        if (!file.exists())
+            return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != VERSION)
+                return;
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                String key = in.readUTF();
+                entries.put(key, Entry.read(in));
+            }
+        }
+        catch (IOException e)
+        {
+            RecurrentComplex.logger.warn("Could not read structure cache, rebuilding", e);
+            entries.clear();
+        }
+    }
+
+    public synchronized void trySave()
+    {
+        if (!loaded || !dirty)
+            return;
+
+        File file = getFile();
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try
+        {
+            Files.createDirectories(file.getParentFile().toPath());
+
+            entries.keySet().removeIf(StructureFileCache::isRemoved);
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile))))
+            {
+                out.writeInt(VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> entry : entries.entrySet())
+                {
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().write(out);
+                }
+            }
+
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            dirty = false;
+        }
+        catch (IOException e)
+        {
+            RecurrentComplex.logger.warn("Could not save structure cache", e);
+        }
+    }
+
+    public static class Entry
+    {
+        public final long fileSize;
+        public final long lastModified;
+
+        public final String json;
+        public final int[] size;
+
+        public Entry(long fileSize, long lastModified, String json, int[] size)
+        {
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+            this.json = json;
+            this.size = size;
+        }
+
+        public static Entry read(DataInput in) throws IOException
+        {
+            long fileSize = in.readLong();
+            long lastModified = in.readLong();
+
+            byte[] json = new byte[in.readInt()];
+            in.readFully(json);
+
+            int[] size = new int[]{in.readInt(), in.readInt(), in.readInt()};
+
+            return new Entry(fileSize, lastModified, new String(json, StandardCharsets.UTF_8), size);
+        }
+
+        public void write(DataOutput out) throws IOException
+        {
+            out.writeLong(fileSize);
+            out.writeLong(lastModified);
+
+            byte[] json = this.json.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(json.length);
+            out.write(json);
+
+            for (int i = 0; i < 3; i++)
+                out.writeInt(size[i]);
+        }
+
+        public boolean matches(BasicFileAttributes attributes)
+        {
+            return attributes.size() == fileSize && attributes.lastModifiedTime().toMillis() == lastModified;
+        }
+    }
+}
@@ -9,8 +9,12 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
 import ivorius.ivtoolkit.tools.IvFileHelper;
+import ivorius.reccomplex.RCConfig;
 import ivorius.reccomplex.RecurrentComplex;
+import ivorius.reccomplex.files.RCFiles;
+import ivorius.reccomplex.files.loading.FileLoadTimings;
 import ivorius.reccomplex.files.loading.FileLoaderRegistry;
+import ivorius.reccomplex.files.loading.LeveledRegistry;
 import ivorius.reccomplex.files.loading.RCFileSuffix;
 import ivorius.reccomplex.files.saving.FileSaverAdapter;
 import ivorius.reccomplex.json.NBTToJson;
@@ -20,13 +24,18 @@ import ivorius.reccomplex.utils.zip.IvZips;
 import ivorius.reccomplex.world.gen.feature.structure.Structure;
 import ivorius.reccomplex.world.gen.feature.structure.StructureRegistry;
 import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Objects;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -46,6 +55,8 @@ public class StructureSaveHandler
     public String suffix;
     public StructureRegistry registry;
 
+    public final StructureFileCache cache = new StructureFileCache();
+
     public StructureSaveHandler(String suffix, StructureRegistry registry)
     {
         gson = createGson();
@@ -70,7 +81,7 @@ public class StructureSaveHandler
     public GenericStructure fromJSON(String jsonData, NBTTagCompound worldData) throws JsonSyntaxException
     {
         GenericStructure structure = gson.fromJson(jsonData, GenericStructure.class);
-        structure.worldDataCompound = worldData;
+        structure.setWorldDataCompound(worldData);
         return structure;
     }
 
@@ -94,22 +105,138 @@ public class StructureSaveHandler
     }
 
     public GenericStructure fromZip(ZipInputStream zipInputStream) throws IOException
+    {
+        return fromZip(zipInputStream, new FileLoadTimings());
+    }
+
+    public GenericStructure fromZip(ZipInputStream zipInputStream, FileLoadTimings timings) throws IOException
+    {
+        Pair<String, NBTTagCompound> contents = readZip(zipInputStream, timings);
+        return fromJSON(contents.getLeft(), contents.getRight(), timings);
+    }
+
+    protected GenericStructure fromJSON(String json, NBTTagCompound worldData, FileLoadTimings timings) throws IOException
+    {
+        try
+        {
+            return timings.time(FileLoadTimings.Phase.JSON, () -> fromJSON(json, worldData));
+        }
+        catch (RuntimeException | IOException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new IOException("Error loading structure", e);
+        }
+    }
+
+    /**
+     * @return The structure's JSON and decoded world data.
+     */
+    protected Pair<String, NBTTagCompound> readZip(ZipInputStream zipInputStream, FileLoadTimings timings) throws IOException
     {
         ZipFinder finder = new ZipFinder();
 
-        ZipFinder.Result<String> json = finder.bytes(STRUCTURE_INFO_JSON_FILENAME, String::new);
-        ZipFinder.Result<NBTTagCompound> worldData = finder.bytes(WORLD_DATA_NBT_FILENAME,
-                bytes -> CompressedStreamTools.readCompressed(new ByteArrayInputStream(bytes)));
+        // Only collect the raw bytes while inflating so the phases can be timed separately
+        ZipFinder.Result<byte[]> json = finder.bytes(STRUCTURE_INFO_JSON_FILENAME, bytes -> bytes);
+        ZipFinder.Result<byte[]> worldData = finder.bytes(WORLD_DATA_NBT_FILENAME, bytes -> bytes);
 
         try
         {
-            finder.read(zipInputStream);
-            return fromJSON(json.get(), worldData.get());
+            timings.time(FileLoadTimings.Phase.INFLATE, () ->
+            {
+                finder.read(zipInputStream);
+                return null;
+            });
+
+            byte[] worldDataBytes = worldData.get();
+            NBTTagCompound worldDataCompound = timings.time(FileLoadTimings.Phase.NBT,
+                    () -> CompressedStreamTools.readCompressed(new ByteArrayInputStream(worldDataBytes)));
+
+            return Pair.of(new String(json.get()), worldDataCompound);
         }
         catch (IOException | ZipFinder.MissingEntryException e)
         {
             throw new IOException("Error loading structure", e);
         }
+        catch (RuntimeException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new IOException("Error loading structure", e);
+        }
+    }
+
+    /**
+     * Loads the world data from the structure file at the given location once it is needed.
+     * If the file has changed in the meantime, the structure's metadata is outdated, so the whole file is read again
+     * and the structure is replaced in the registry.
+     */
+    public GenericStructure.WorldDataSource worldDataSource(URI uri, GenericStructure structure, long fileSize, long lastModified)
+    {
+        return () -> RCFiles.read(uri, path ->
+        {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (attributes.size() != fileSize || attributes.lastModifiedTime().toMillis() != lastModified)
+                return reloadChanged(path, attributes, structure);
+
+            ZipFinder finder = new ZipFinder();
+            ZipFinder.Result<NBTTagCompound> worldData = finder.bytes(WORLD_DATA_NBT_FILENAME,
+                    bytes -> CompressedStreamTools.readCompressed(new ByteArrayInputStream(bytes)));
+
+            try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(path)))
+            {
+                finder.read(zip);
+                return worldData.get();
+            }
+            catch (ZipFinder.MissingEntryException e)
+            {
+                throw new IOException("Error loading structure", e);
+            }
+        });
+    }
+
+    /**
+     * @return The world data of the changed file, for the outdated structure to finish what it's doing.
+     */
+    protected NBTTagCompound reloadChanged(Path path, BasicFileAttributes attributes, GenericStructure outdated) throws IOException
+    {
+        RecurrentComplex.logger.warn("Structure file changed since loading, reading it again: " + path);
+
+        Pair<String, NBTTagCompound> contents;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(Files.readAllBytes(path))))
+        {
+            contents = readZip(zip, new FileLoadTimings());
+        }
+
+        GenericStructure structure = fromJSON(contents.getLeft(), contents.getRight(), new FileLoadTimings());
+        if (RCConfig.cacheStructureFiles)
+            cache.put(path, attributes, contents.getLeft(), structure.size());
+        if (RCConfig.lazyStructureWorldData)
+            structure.setWorldDataSource(worldDataSource(path.toUri(), structure, attributes.size(), attributes.lastModifiedTime().toMillis()), structure.size());
+
+        Runnable replace = () ->
+        {
+            String id = registry.id(outdated);
+            // Might have been replaced or removed by now
+            if (id != null && registry.get(id) == outdated)
+            {
+                LeveledRegistry.Status status = registry.status(id);
+                registry.register(id, status.getDomain(), structure, status.isActive(), status.getLevel());
+            }
+        };
+
+        // Structures may load their world data from any thread, but the registry belongs to the server thread
+        MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+        if (server != null)
+            server.addScheduledTask(replace);
+        else
+            replace.run();
+
+        return contents.getRight();
     }
 
     public void toZip(Structure<?> structure, ZipOutputStream zipOutputStream) throws IOException
@@ -118,7 +245,7 @@ public class StructureSaveHandler
         Objects.requireNonNull(copy);
 
         IvZips.addZipEntry(zipOutputStream, STRUCTURE_INFO_JSON_FILENAME, toJSON(copy).getBytes());
-        IvZips.addZipEntry(zipOutputStream, WORLD_DATA_NBT_FILENAME, ByteArrays.toByteArray(s -> CompressedStreamTools.writeCompressed(copy.worldDataCompound, s)));
+        IvZips.addZipEntry(zipOutputStream, WORLD_DATA_NBT_FILENAME, ByteArrays.toByteArray(s -> CompressedStreamTools.writeCompressed(copy.worldDataCompound(), s)));
 
         zipOutputStream.close();
     }
@@ -133,9 +260,45 @@ public class StructureSaveHandler
         @Override
         public GenericStructure read(Path path, String name) throws Exception
         {
-            try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(path)))
+            return read(path, name, new FileLoadTimings());
+        }
+
+        @Override
+        public GenericStructure read(Path path, String name, FileLoadTimings timings) throws Exception
+        {
+            if (!RCConfig.cacheStructureFiles && !RCConfig.lazyStructureWorldData)
+                return readFile(path, timings).getLeft();
+
+            BasicFileAttributes attributes = timings.time(FileLoadTimings.Phase.IO, () -> Files.readAttributes(path, BasicFileAttributes.class));
+            StructureFileCache.Entry cached = RCConfig.cacheStructureFiles ? cache.get(path, attributes) : null;
+
+            if (cached != null)
             {
-                return fromZip(zip);
+                GenericStructure structure = fromJSON(cached.json, null, timings);
+                structure.setWorldDataSource(worldDataSource(path.toUri(), structure, cached.fileSize, cached.lastModified), cached.size);
+                return structure;
+            }
+
+            Pair<GenericStructure, String> read = readFile(path, timings);
+            GenericStructure structure = read.getLeft();
+
+            if (RCConfig.cacheStructureFiles)
+                cache.put(path, attributes, read.getRight(), structure.size());
+            if (RCConfig.lazyStructureWorldData)
+                structure.setWorldDataSource(worldDataSource(path.toUri(), structure, attributes.size(), attributes.lastModifiedTime().toMillis()), structure.size());
+
+            return structure;
+        }
+
+        protected Pair<GenericStructure, String> readFile(Path path, FileLoadTimings timings) throws Exception
+        {
+            // Read everything at once so that IO isn't interleaved with (and counted as) inflating
+            byte[] bytes = timings.time(FileLoadTimings.Phase.IO, () -> Files.readAllBytes(path));
+
+            try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bytes)))
+            {
+                Pair<String, NBTTagCompound> contents = readZip(zip, timings);
+                return Pair.of(fromJSON(contents.getLeft(), contents.getRight(), timings), contents.getLeft());
             }
         }
     }
@@ -150,10 +313,9 @@ public class StructureSaveHandler
         @Override
         public void saveFile(Path path, Structure<?> structure) throws Exception
         {
-            try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(path)))
-            {
-                toZip(structure, zipOutputStream);
-            }
+            // Lazily loaded structures may still need to read their blocks from the file we are overwriting
+            byte[] zip = ByteArrays.toByteArray(s -> toZip(structure, new ZipOutputStream(s)));
+            Files.write(path, zip);
         }
     }
 }
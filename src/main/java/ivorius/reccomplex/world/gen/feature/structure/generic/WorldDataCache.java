@@ -0,0 +1,123 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.world.gen.feature.structure.generic;
+
+import ivorius.ivtoolkit.blocks.IvBlockCollection;
+import ivorius.ivtoolkit.tools.IvWorldData;
+import ivorius.reccomplex.RCConfig;
+import ivorius.reccomplex.RecurrentComplex;
+import ivorius.reccomplex.files.SimpleLeveledRegistry;
+import ivorius.reccomplex.world.gen.feature.structure.StructureRegistry;
+import net.minecraft.nbt.NBTTagCompound;
+
+import javax.annotation.Nonnull;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Keeps decoded world data of generic structures around so that repeated generation (e.g. complementing
+ * a partially spawned structure chunk by chunk) doesn't have to decode the NBT over and over again.
+ * The cached data is shared, so it must never be modified. Least recently used entries are evicted once the
+ * summed up volume exceeds {@link RCConfig#worldDataCacheVolume}.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class WorldDataCache extends SimpleLeveledRegistry.Module<StructureRegistry>
+{
+    public static final WorldDataCache INSTANCE = new WorldDataCache();
+
+    private final LinkedHashMap<GenericStructure, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long volume;
+
+    protected static long volume(IvWorldData worldData)
+    {
+        IvBlockCollection blockCollection = worldData.blockCollection;
+        return Math.max(1L, (long) blockCollection.width * blockCollection.height * blockCollection.length);
+    }
+
+    /**
+     * @return The decoded, shared world data of the structure. Do not modify!
+     */
+    @Nonnull
+    public IvWorldData get(GenericStructure structure)
+    {
+        NBTTagCompound source = structure.worldDataCompound();
+
+        synchronized (this)
+        {
+            Entry entry = entries.get(structure);
+            if (entry != null)
+            {
+                if (entry.source == source)
+                    return entry.worldData;
+
+                remove(structure);
+            }
+        }
+
+        IvWorldData worldData = new IvWorldData(source, RecurrentComplex.specialRegistry.itemHidingMode());
+
+        synchronized (this)
+        {
+            if (RCConfig.worldDataCacheVolume > 0 && structure.worldDataCompound() == source && !entries.containsKey(structure))
+            {
+                Entry entry = new Entry(source, worldData, volume(worldData));
+                entries.put(structure, entry);
+                volume += entry.volume;
+
+                trim();
+            }
+        }
+
+        return worldData;
+    }
+
+    public synchronized void remove(GenericStructure structure)
+    {
+        Entry entry = entries.remove(structure);
+        if (entry != null)
+            volume -= entry.volume;
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+        volume = 0;
+    }
+
+    protected void trim()
+    {
+        long max = RCConfig.worldDataCacheVolume;
+
+        Iterator<Entry> iterator = entries.values().iterator();
+        // Always keep the most recent one
+        while (volume > max && entries.size() > 1 && iterator.hasNext())
+        {
+            volume -= iterator.next().volume;
+            iterator.remove();
+        }
+    }
+
+    @Override
+    public void invalidate()
+    {
+        clear();
+    }
+
+    protected static class Entry
+    {
+        public final NBTTagCompound source;
+        public final IvWorldData worldData;
+        public final long volume;
+
+        public Entry(NBTTagCompound source, IvWorldData worldData, long volume)
+        {
+            this.source = source;
+            this.worldData = worldData;
+            this.volume = volume;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.world.gen.feature.structure.generic.maze;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import ivorius.reccomplex.RCConfig;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Solves mazes on a shared, bounded pool of threads.
+ * Solvers are cancelled cooperatively: long running maze predicates should call {@link #checkCancelled()} regularly,
+ * which aborts the solver once its maze has timed out.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class MazeSolvers
+{
+    /**
+     * Solvers always give up after this many milliseconds, so that unsolvable mazes can't block the server for good.
+     */
+    public static final long MAX_TIMEOUT = 600000;
+
+    private static final ThreadLocal<Token> currentToken = new ThreadLocal<>();
+
+    private static final LongAdder solved = new LongAdder();
+    private static final LongAdder failed = new LongAdder();
+    private static final LongAdder timedOut = new LongAdder();
+    private static final LongAdder solveNanos = new LongAdder();
+
+    private static ThreadPoolExecutor executor;
+
+    public static int threads()
+    {
+        return RCConfig.mazeSolverThreads > 0 ? RCConfig.mazeSolverThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    protected static synchronized ThreadPoolExecutor executor()
+    {
+        int threads = threads();
+
+        if (executor == null)
+        {
+            executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder().setNameFormat("ReC Maze Solver %d").setDaemon(true).build());
+            executor.allowCoreThreadTimeOut(true);
+        }
+        else if (executor.getMaximumPoolSize() != threads)
+        {
+            // Config changed
+            if (threads > executor.getMaximumPoolSize())
+            {
+                executor.setMaximumPoolSize(threads);
+                executor.setCorePoolSize(threads);
+            }
+            else
+            {
+                executor.setCorePoolSize(threads);
+                executor.setMaximumPoolSize(threads);
+            }
+        }
+
+        return executor;
+    }
+
+    /**
+     * Starts solving on the pool.
+     *
+     * @return A handle to wait for the result with, or to cancel the solver.
+     */
+    public static <T> Solver<T> submit(Callable<T> task)
+    {
+        Token token = new Token();
+
+        Future<T> future = executor().submit(() ->
+        {
+            token.checkCancelled(); // Timed out while queued
+
+            currentToken.set(token);
+            long start = System.nanoTime();
+            try
+            {
+                T t = task.call();
+                solved.increment();
+                return t;
+            }
+            catch (Cancelled e)
+            {
+                throw e;
+            }
+            catch (Throwable e)
+            {
+                failed.increment();
+                throw e;
+            }
+            finally
+            {
+                solveNanos.add(System.nanoTime() - start);
+                currentToken.remove();
+            }
+        });
+
+        return new Solver<>(future, token);
+    }
+
+    /**
+     * Solves on the pool and waits for the result.
+     *
+     * @param timeout The timeout in milliseconds, including time spent queued. Negative values wait up to {@link #MAX_TIMEOUT}.
+     */
+    public static <T> T solve(Callable<T> task, long timeout) throws TimeoutException, ExecutionException, InterruptedException
+    {
+        return submit(task).get(timeout);
+    }
+
+    /**
+     * Solves all tasks in parallel and returns the first non-null result, in the order of the tasks.
+     * Later tasks are only used when all earlier ones failed or timed out, so that results stay reproducible.
+     *
+     * @param timeout The timeout in milliseconds for all tasks together, including time spent queued. Negative values wait up to {@link #MAX_TIMEOUT}.
+     * @throws TimeoutException   if no task succeeded and at least one timed out.
+     * @throws ExecutionException with the first task's error, if all tasks failed.
+     */
+    public static <T> T solveFirst(List<Callable<T>> tasks, long timeout) throws TimeoutException, ExecutionException, InterruptedException
+    {
+        List<Solver<T>> solvers = tasks.stream().map(MazeSolvers::submit).collect(Collectors.toList());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(bound(timeout));
+
+        boolean anyTimedOut = false;
+        ExecutionException failure = null;
+
+        try
+        {
+            for (Solver<T> solver : solvers)
+            {
+                try
+                {
+                    T t = solver.get(Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+                    if (t != null)
+                        return t;
+                }
+                catch (TimeoutException e)
+                {
+                    anyTimedOut = true;
+                }
+                catch (ExecutionException e)
+                {
+                    if (failure == null)
+                        failure = e;
+                }
+            }
+        }
+        finally
+        {
+            solvers.forEach(Solver::cancel);
+        }
+
+        if (anyTimedOut)
+            throw new TimeoutException();
+        if (failure != null)
+            throw failure;
+
+        return null;
+    }
+
+    protected static long bound(long timeout)
+    {
+        return timeout >= 0 ? Math.min(timeout, MAX_TIMEOUT) : MAX_TIMEOUT;
+    }
+
+    /**
+     * Aborts the current solver if it was cancelled. Does nothing outside of solvers.
+     *
+     * @throws Cancelled if the solver was cancelled.
+     */
+    public static void checkCancelled()
+    {
+        Token token = currentToken.get();
+        if (token != null)
+            token.checkCancelled();
+    }
+
+    public static int queueDepth()
+    {
+        ThreadPoolExecutor executor = MazeSolvers.executor;
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    public static int activeSolvers()
+    {
+        ThreadPoolExecutor executor = MazeSolvers.executor;
+        return executor != null ? executor.getActiveCount() : 0;
+    }
+
+    public static long solvedCount()
+    {
+        return solved.sum();
+    }
+
+    public static long failedCount()
+    {
+        return failed.sum();
+    }
+
+    public static long timeoutCount()
+    {
+        return timedOut.sum();
+    }
+
+    /**
+     * @return The summed up time solvers were running, in milliseconds.
+     */
+    public static long solveTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(solveNanos.sum());
+    }
+
+    public static String metrics()
+    {
+        return String.format("%d solved, %d failed, %d timed out, %d ms solving, %d active, %d queued",
+                solvedCount(), failedCount(), timeoutCount(), solveTime(), activeSolvers(), queueDepth());
+    }
+
+    public static class Solver<T>
+    {
+        private final Future<T> future;
+        private final Token token;
+
+        protected Solver(Future<T> future, Token token)
+        {
+            this.future = future;
+            this.token = token;
+        }
+
+        /**
+         * @param timeout The timeout in milliseconds. Negative values wait up to {@link #MAX_TIMEOUT}.
+         */
+        public T get(long timeout) throws TimeoutException, ExecutionException, InterruptedException
+        {
+            try
+            {
+                return future.get(bound(timeout), TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e)
+            {
+                timedOut.increment();
+                cancel();
+                throw e;
+            }
+            catch (InterruptedException e)
+            {
+                cancel();
+                throw e;
+            }
+        }
+
+        public boolean isDone()
+        {
+            return future.isDone();
+        }
+
+        public void cancel()
+        {
+            token.cancel();
+            future.cancel(false);
+        }
+    }
+
+    protected static class Token
+    {
+        private volatile boolean cancelled;
+
+        public void cancel()
+        {
+            cancelled = true;
+        }
+
+        public void checkCancelled()
+        {
+            if (cancelled)
+                throw new Cancelled();
+        }
+    }
+
+    public static class Cancelled extends RuntimeException
+    {
+        public Cancelled()
+        {
+            super("Maze solver was cancelled", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.world.gen.feature.structure.generic.maze.rules;
+
+import ivorius.ivtoolkit.maze.components.*;
+import ivorius.reccomplex.world.gen.feature.structure.generic.maze.MazeSolvers;
+
+/**
+ * Aborts the maze solver it runs in once it has been cancelled, since the connector itself doesn't check.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class CancellationStrategy<C> implements MazePredicate<C>
+{
+    @Override
+    public boolean canPlace(MorphingMazeComponent<C> maze, ShiftedMazeComponent<?, C> component)
+    {
+        MazeSolvers.checkCancelled();
+        return true;
+    }
+
+    @Override
+    public void willPlace(MorphingMazeComponent<C> maze, ShiftedMazeComponent<?, C> component)
+    {
+
+    }
+
+    @Override
+    public void didPlace(MorphingMazeComponent<C> maze, ShiftedMazeComponent<?, C> component)
+    {
+
+    }
+
+    @Override
+    public void willUnplace(MorphingMazeComponent<C> maze, ShiftedMazeComponent<?, C> component)
+    {
+
+    }
+
+    @Override
+    public void didUnplace(MorphingMazeComponent<C> maze, ShiftedMazeComponent<?, C> component)
+    {
+
+    }
+
+    @Override
+    public boolean isDirtyConnection(MazeRoom dest, MazeRoom source, C c)
+    {
+        return true;
+    }
+}
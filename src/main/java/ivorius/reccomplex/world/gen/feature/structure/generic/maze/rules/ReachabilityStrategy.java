@@ -5,14 +5,19 @@
 
 package ivorius.reccomplex.world.gen.feature.structure.generic.maze.rules;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Sets;
 import gnu.trove.map.TObjectIntMap;
 import gnu.trove.map.hash.TObjectIntHashMap;
 import ivorius.ivtoolkit.maze.components.*;
+import ivorius.reccomplex.world.gen.feature.structure.generic.maze.MazeSolvers;
+import org.apache.commons.lang3.tuple.Pair;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -24,7 +29,10 @@ import java.util.stream.Collectors;
  */
 public class ReachabilityStrategy<C> implements MazePredicate<C>
 {
-    private final Collection<Ability<C>> traversalAbilities = new ArrayList<>();
+    // Every rule of every solver attempt compiles abilities for the same components
+    private static final Cache<Collection<?>, Collection<?>> sharedAbilities = CacheBuilder.newBuilder().weakKeys().maximumSize(16).build();
+
+    private final Map<MazeRoom, List<Ability<C>>> traversalAbilities = new HashMap<>();
 
     private ConnectionPoint mainConnectionPoint;
     private final List<ConnectionPoint> connectionPoints = new ArrayList<>();
@@ -46,7 +54,7 @@ public class ReachabilityStrategy<C> implements MazePredicate<C>
     {
         ReachabilityStrategy<C> strategy = new ReachabilityStrategy<>(confiner, connectionStrategy, false);
         strategy.setConnection(points);
-        strategy.traversalAbilities.addAll(traversalAbilities);
+        strategy.traversalAbilities.putAll(indexAbilities(traversalAbilities));
         return strategy;
     }
 
@@ -57,9 +65,26 @@ public class ReachabilityStrategy<C> implements MazePredicate<C>
         return strategy;
     }
 
+    /**
+     * Like {@link #compileAbilities(Collection)}, but shared between everyone asking for the same (unchanging)
+     * component collection. Abilities aren't modified after compiling, so they may be used by many strategies at once.
+     */
+    public static <C> Collection<Ability<C>> sharedAbilities(Collection<? extends MazeComponent<C>> components)
+    {
+        try
+        {
+            //noinspection unchecked
+            return (Collection<Ability<C>>) sharedAbilities.get(components, () -> compileAbilities(components));
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
     public static <C> Collection<Ability<C>> compileAbilities(Collection<? extends MazeComponent<C>> components)
     {
-        Collection<Ability<C>> abilities = new HashSet<>();
+        Map<Pair<MazePassage, MazePassage>, Ability<C>> abilities = new LinkedHashMap<>();
 
         for (MazeComponent<C> component : components)
         {
@@ -78,18 +103,7 @@ public class ReachabilityStrategy<C> implements MazePredicate<C>
                                 && !source.equals(exit.inverse()))
                         {
                             Ability<C> ability = Ability.from(source, exit);
-
-                            Optional<Ability<C>> existing = abilities.stream()
-                                    .filter(a -> a.same(ability))
-                                    .findFirst();
-
-                            if (existing.isPresent())
-                                existing.get().add(component);
-                            else
-                            {
-                                ability.add(component);
-                                abilities.add(ability);
-                            }
+                            abilities.computeIfAbsent(Pair.of(ability.start(), ability.destination()), key -> ability).add(component);
                         }
                     }
                 }
@@ -98,7 +112,8 @@ public class ReachabilityStrategy<C> implements MazePredicate<C>
 
 //         An ability starts where you can place a room, and stops where you can place the next room
         // Remove inferrable abilities
-        abilities.forEach(ability ->
+        Map<MazeRoom, List<Ability<C>>> index = indexAbilities(abilities.values());
+        abilities.values().forEach(ability ->
         {
             for (int i = 0; i < ability.masks.size(); i++)
             {
@@ -106,7 +121,7 @@ public class ReachabilityStrategy<C> implements MazePredicate<C>
                 ability.masks.remove(i); // Test if we can move within without using this mask
 
                 if (approximateCanReach(mask.rooms, (c, p) -> compatible(mask.exits.get(p), c),
-                        abilities,
+                        index,
                         Collections.singleton(ability.start()),
                         Collections.singleton(ability.destination())
                         , null) != null)
@@ -118,9 +133,20 @@ public class ReachabilityStrategy<C> implements MazePredicate<C>
 
         // Purge empty abilities
         // Can't do this in the forEach for some reason
-        abilities.removeIf(a -> a.masks.isEmpty());
+        abilities.values().removeIf(a -> a.masks.isEmpty());
 
-        return abilities;
+        return new ArrayList<>(abilities.values());
+    }
+
+    /**
+     * Groups abilities by the direction they start walking in, i.e. by the destination of their normalized start.
+     */
+    protected static <C> Map<MazeRoom, List<Ability<C>>> indexAbilities(Collection<Ability<C>> abilities)
+    {
+        Map<MazeRoom, List<Ability<C>>> index = new HashMap<>();
+        for (Ability<C> ability : abilities)
+            index.computeIfAbsent(ability.start().getDest(), key -> new ArrayList<>()).add(ability);
+        return index;
     }
 
     protected static <C> boolean compatible(C existing, C add)
@@ -135,7 +161,15 @@ public class ReachabilityStrategy<C> implements MazePredicate<C>
 
     protected static <C> Set<MazePassage> traverse(Collection<MazeComponent<C>> mazes, @Nonnull Collection<MazePassage> traversed, Collection<MazePassage> connections, @Nullable Consumer<MazePassage> visitor)
     {
-        if (connections.size() <= 0)
+        return traverse(mazes, (Predicate<MazePassage>) traversed::add, connections, visitor);
+    }
+
+    /**
+     * @param traverse Marks a passage as traversed, returning false if it was traversed before.
+     */
+    protected static <C> Set<MazePassage> traverse(Collection<MazeComponent<C>> mazes, @Nonnull Predicate<MazePassage> traverse, Collection<MazePassage> connections, @Nullable Consumer<MazePassage> visitor)
+    {
+        if (connections.size() <= 0 || mazes.isEmpty())
             return Collections.emptySet();
 
         Deque<MazePassage> dirty = new ArrayDeque<>(connections);
@@ -149,7 +183,7 @@ public class ReachabilityStrategy<C> implements MazePredicate<C>
                 maze.reachability().get(src).forEach(dest ->
                 {
                     // Have we been here already?
-                    if (traversed.add(dest))
+                    if (traverse.test(dest))
                     {
                         if (visitor != null) visitor.accept(dest);
                         added.add(dest);
@@ -172,12 +206,12 @@ public class ReachabilityStrategy<C> implements MazePredicate<C>
         return added;
     }
 
-    private static <C> Set<MazeRoom> approximateCanReach(Set<MazeRoom> rooms, BiPredicate<C, MazePassage> connector, Collection<Ability<C>> abilities, Set<MazePassage> left, Set<MazePassage> right, Predicate<MazeRoom> confiner)
+    private static <C> Set<MazeRoom> approximateCanReach(Set<MazeRoom> rooms, BiPredicate<C, MazePassage> connector, Map<MazeRoom, List<Ability<C>>> abilities, Set<MazePassage> left, Set<MazePassage> right, Predicate<MazeRoom> confiner)
     {
         return approximateCanReach(rooms, abilities, Collections.emptyList(), left, right, Collections.emptyList(), confiner, connector);
     }
 
-    private static <C> Set<MazeRoom> approximateCanReach(Set<MazeRoom> rooms, Collection<Ability<C>> abilities, Collection<MazeComponent<C>> mazes, Set<MazePassage> left, Set<MazePassage> right, Collection<MazePassage> pTraversed, Predicate<MazeRoom> confiner, BiPredicate<C, MazePassage> connector)
+    private static <C> Set<MazeRoom> approximateCanReach(Set<MazeRoom> rooms, Map<MazeRoom, List<Ability<C>>> abilities, Collection<MazeComponent<C>> mazes, Set<MazePassage> left, Set<MazePassage> right, Collection<MazePassage> pTraversed, Predicate<MazeRoom> confiner, BiPredicate<C, MazePassage> connector)
     {
         if (left.size() <= 0 || right.size() <= 0)
             return null;
@@ -186,59 +220,53 @@ public class ReachabilityStrategy<C> implements MazePredicate<C>
         if (left.stream().anyMatch(right::contains))
             return null;
 
-        final Collection<MazePassage> traversed = Sets.newHashSet(pTraversed); // Editable
+        // Only record what we traverse additionally, pTraversed stays untouched
+        Set<MazePassage> newlyTraversed = new HashSet<>();
+        Predicate<MazePassage> traverse = p -> !pTraversed.contains(p) && newlyTraversed.add(p);
 
         Predicate<MazeRoom> roomPlaceable = confiner != null ? ((o) -> confiner.test(o) && !rooms.contains(o)) : rooms::contains;
         Predicate<MazePassage> passagePlaceable = o -> roomPlaceable.test(o.getSource());
 
-        Set<MazePassage> visited = Sets.newHashSet(left);
-        TreeSet<MazePassage> dirty = Sets.newTreeSet((o1, o2) ->
-        {
-            int compare;
-            // Sort by closest
-            if ((compare = Double.compare(minDistanceSQ(o1, right), minDistanceSQ(o2, right))) != 0) return compare;
+        // Walk towards the closest target first
+        Distances distances = new Distances(right);
+        Set<MazePassage> visited = new HashSet<>(left);
+        PriorityQueue<Frontier> dirty = new PriorityQueue<>();
+        for (MazePassage passage : left)
+            dirty.add(new Frontier(passage, distances.get(passage.getSource())));
 
-            // Arbitrarily sort - different passages can NEVER return 0, otherwise one gets trashed
-            if ((compare = compare(o1.getSource().getCoordinates(), o2.getSource().getCoordinates())) != 0)
-                return compare;
-            if ((compare = compare(o1.getDest().getCoordinates(), o2.getDest().getCoordinates())) != 0) return compare;
+        Frontier curFrontier;
+        while ((curFrontier = dirty.poll()) != null)
+        {
+            MazeSolvers.checkCancelled();
 
-            return 0;
-        });
-        dirty.addAll(left);
-        visited.addAll(left);
+            MazePassage cur = curFrontier.passage;
 
-        MazePassage curPre;
-        while ((curPre = dirty.pollFirst()) != null)
-        {
-            MazePassage cur = curPre;
-            MazePassage curNormal = cur.normalize();
+            List<Ability<C>> shiftable = abilities.get(cur.normalize().getDest());
+            if (shiftable == null)
+                continue;
 
             // Try each ability (i.e. walk through empty space)
-            for (Ability ability : (Iterable<Ability<C>>) abilities.stream()
-                    .filter(ability -> !visited.contains(ability.destination().add(cur.getSource()))) // Wasn't there
-                    .filter(ability -> ability.start.getDest().equals(curNormal.getDest())) // Shiftable
-                    .filter(ability -> ability.connect(cur.getSource(), roomPlaceable, connector)) // Connectable
-                    ::iterator)
+            for (Ability<C> ability : shiftable)
             {
                 MazePassage dest = ability.destination().add(cur.getSource());
+                if (visited.contains(dest) // Was there
+                        || !ability.connect(cur.getSource(), roomPlaceable, connector)) // Not connectable
+                    continue;
+
                 if (right.contains(dest))
                     return compileRoute(visited);
                 if (passagePlaceable.test(dest) && visited.add(dest))
-                    dirty.add(dest);
+                    dirty.add(new Frontier(dest, distances.get(dest.getSource())));
 
                 // Try entries (i.e. walk through placed components)
-                for (MazePassage p : (Iterable<MazePassage>)
-                        traverse(mazes, traversed, Collections.singleton(dest), null).stream()
-                                .distinct()::iterator)
+                for (MazePassage p : traverse(mazes, traverse, Collections.singleton(dest), null))
                 {
                     if (right.contains(p))
                         return compileRoute(visited);
                     if (passagePlaceable.test(p) && visited.add(p))
-                        dirty.add(p);
+                        dirty.add(new Frontier(p, distances.get(p.getSource())));
                 }
             }
-
         }
 
         return null;
@@ -263,9 +291,54 @@ public class ReachabilityStrategy<C> implements MazePredicate<C>
         return 0;
     }
 
-    private static double minDistanceSQ(MazePassage passage, Collection<MazePassage> rooms)
+    private static class Distances
+    {
+        private final MazeRoom[] targets;
+        private final Map<MazeRoom, Double> cache = new HashMap<>();
+
+        public Distances(Collection<MazePassage> targets)
+        {
+            this.targets = targets.stream().map(MazePassage::getDest).distinct().toArray(MazeRoom[]::new);
+        }
+
+        /**
+         * @return The squared distance to the closest target.
+         */
+        public double get(MazeRoom room)
+        {
+            return cache.computeIfAbsent(room, r ->
+            {
+                double min = Double.POSITIVE_INFINITY;
+                for (MazeRoom target : targets)
+                    min = Math.min(min, target.distanceSQ(r));
+                return min;
+            });
+        }
+    }
+
+    private static class Frontier implements Comparable<Frontier>
     {
-        return rooms.stream().map(MazePassage::getDest).mapToDouble(o -> o.distanceSQ(passage.getSource())).min().orElseThrow(InternalError::new);
+        public final MazePassage passage;
+        public final double distanceSQ;
+
+        public Frontier(MazePassage passage, double distanceSQ)
+        {
+            this.passage = passage;
+            this.distanceSQ = distanceSQ;
+        }
+
+        @Override
+        public int compareTo(Frontier o)
+        {
+            int compare;
+            // Sort by closest
+            if ((compare = Double.compare(distanceSQ, o.distanceSQ)) != 0) return compare;
+
+            // Arbitrarily sort, so the walk stays deterministic
+            if ((compare = ReachabilityStrategy.compare(passage.getSource().getCoordinates(), o.passage.getSource().getCoordinates())) != 0)
+                return compare;
+            return ReachabilityStrategy.compare(passage.getDest().getCoordinates(), o.passage.getDest().getCoordinates());
+        }
     }
 
     protected static <C> C exitFromEither(MazeComponent<C> left, MazeComponent<C> right, MazePassage p)
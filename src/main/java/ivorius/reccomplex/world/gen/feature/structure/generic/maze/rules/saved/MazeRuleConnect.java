@@ -67,7 +67,7 @@ public class MazeRuleConnect extends MazeRule
             LimitAABBStrategy<Object> confiner = new LimitAABBStrategy<>(script.mazeComponent.boundsSize());
 
             return preventConnection ? ReachabilityStrategy.preventConnection(points, confiner, connectionStrategy)
-                    :  ReachabilityStrategy.connect(points, confiner, ReachabilityStrategy.compileAbilities(components), connectionStrategy);
+                    :  ReachabilityStrategy.connect(points, confiner, ReachabilityStrategy.sharedAbilities(components), connectionStrategy);
         }
         else
             return null;
@@ -63,7 +63,7 @@ public class MazeRuleConnectAll extends MazeRule
             Predicate<MazeRoom> confiner = new LimitAABBStrategy<>(script.mazeComponent.boundsSize());
 
             return preventConnection ? ReachabilityStrategy.preventConnection(points, confiner, connectionStrategy)
-                    : ReachabilityStrategy.connect(points, confiner, ReachabilityStrategy.compileAbilities(components), connectionStrategy
+                    : ReachabilityStrategy.connect(points, confiner, ReachabilityStrategy.sharedAbilities(components), connectionStrategy
             );
         }
         else
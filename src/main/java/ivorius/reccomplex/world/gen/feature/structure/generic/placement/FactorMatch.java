@@ -23,7 +23,10 @@ import ivorius.reccomplex.utils.IntegerRanges;
 import ivorius.reccomplex.utils.algebra.ExpressionCache;
 import ivorius.reccomplex.utils.expression.BlockExpression;
 import ivorius.reccomplex.utils.expression.PositionedBlockExpression;
-import net.minecraft.util.EnumFacing;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.minecraft.util.math.BlockPos;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
@@ -32,9 +35,9 @@ import org.apache.commons.lang3.tuple.Pair;
 import javax.annotation.Nullable;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Created by lukas on 18.09.16.
@@ -60,20 +63,15 @@ public class FactorMatch extends GenericPlacer.Factor
         this.requiredConformity = requiredConformity;
     }
 
-    protected float weight(WorldCache cache, Set<? extends BlockPos> sources, float needed)
+    protected static float conformity(int matched, int sources, float needed)
     {
-        int failChances = (int) (sources.size() * (1f - needed));
-        int matched = 0;
-
-        for (BlockPos pos : sources)
-        {
-            if (destMatcher.evaluate(() -> PositionedBlockExpression.Argument.at(cache, pos)))
-                matched++;
-            else if (--failChances < 0)
-                break;  // Already lost
-        }
+        int failChances = (int) (sources * (1f - needed));
+        return sources - matched <= failChances ? (float) matched / sources : 0;
+    }
 
-        return failChances >= 0 ? (float) matched / sources.size() : 0;
+    protected static long columnKey(int x, int z)
+    {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
     }
 
     @SideOnly(Side.CLIENT)
@@ -93,10 +91,20 @@ public class FactorMatch extends GenericPlacer.Factor
 
         int[] size = StructureBoundingBoxes.size(context.boundingBox);
         BlockPos lowerCoord = StructureBoundingBoxes.min(context.boundingBox);
-        Set<BlockPos.MutableBlockPos> sources = BlockAreas.streamMutablePositions(blockCollection.area())
+
+        // Sources by world column, with their y offsets
+        Long2ObjectMap<IntList> columns = new Long2ObjectOpenHashMap<>();
+        int[] sourceCount = new int[1];
+        BlockAreas.streamMutablePositions(blockCollection.area())
                 .filter(p -> sourceMatcher.evaluate(() -> blockCollection.getBlockState(p)))
-                .map(p -> new BlockPos.MutableBlockPos(context.transform.apply(p, size).add(lowerCoord.getX(), 0, lowerCoord.getZ())))
-                .collect(Collectors.toSet());
+                .forEach(p ->
+                {
+                    BlockPos worldPos = context.transform.apply(p, size);
+                    columns.computeIfAbsent(columnKey(worldPos.getX() + lowerCoord.getX(), worldPos.getZ() + lowerCoord.getZ()), k -> new IntArrayList()).add(worldPos.getY());
+                    sourceCount[0]++;
+                });
+
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
 
         for (IntegerRange range : (Iterable<IntegerRange>) considerable.streamSections(null, true)::iterator)
         {
@@ -104,14 +112,40 @@ public class FactorMatch extends GenericPlacer.Factor
             int lastY = range.getMax();
             int end = range.getMin();
 
-            for (int y = lastY; y >= end; y--)
+            // Every world position is only tested once; each source then just looks up its column
+            int[] matched = new int[lastY - end + 1];
+            for (Long2ObjectMap.Entry<IntList> column : columns.long2ObjectEntrySet())
             {
-                int finalY = y;
-                sources.forEach(p -> p.move(EnumFacing.UP, finalY));
+                int x = (int) (column.getLongKey() >> 32), z = (int) column.getLongKey();
+                IntList offsets = column.getValue();
+
+                int minOffset = Integer.MAX_VALUE, maxOffset = Integer.MIN_VALUE;
+                for (int i = 0; i < offsets.size(); i++)
+                {
+                    minOffset = Math.min(minOffset, offsets.getInt(i));
+                    maxOffset = Math.max(maxOffset, offsets.getInt(i));
+                }
+
+                int lower = end + minOffset;
+                BitSet matches = new BitSet();
+                for (int y = lower; y <= lastY + maxOffset; y++)
+                {
+                    pos.setPos(x, y, z);
+                    if (destMatcher.evaluate(() -> PositionedBlockExpression.Argument.at(cache, pos)))
+                        matches.set(y - lower);
+                }
 
-                float conformity = weight(cache, sources, requiredConformity);
+                for (int i = 0; i < offsets.size(); i++)
+                {
+                    int offset = offsets.getInt(i) - minOffset;
+                    for (int y = matches.nextSetBit(offset); y >= 0 && y - offset < matched.length; y = matches.nextSetBit(y + 1))
+                        matched[y - offset]++;
+                }
+            }
 
-                sources.forEach(p -> p.move(EnumFacing.DOWN, finalY));
+            for (int y = lastY; y >= end; y--)
+            {
+                float conformity = conformity(matched[y - end], sourceCount[0], requiredConformity);
 
                 if (curConformity == null)
                 {
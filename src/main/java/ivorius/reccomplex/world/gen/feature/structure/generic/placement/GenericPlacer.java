@@ -20,7 +20,6 @@ import ivorius.reccomplex.world.gen.feature.structure.Placer;
 import ivorius.ivtoolkit.world.WorldCache;
 import ivorius.ivtoolkit.util.LineSelection;
 import ivorius.ivtoolkit.util.LineSelections;
-import ivorius.ivtoolkit.world.chunk.gen.StructureBoundingBoxes;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.WorldServer;
 import net.minecraftforge.fml.relauncher.Side;
@@ -55,7 +54,7 @@ public class GenericPlacer
 
         WorldServer world = context.environment.world;
 
-        WorldCache cache = new WorldCache(world, StructureBoundingBoxes.wholeHeightBoundingBox(world, context.boundingBox));
+        WorldCache cache = PlacementCache.get(world, context.boundingBox);
 
         LineSelection considerable = LineSelection.fromRange(new IntegerRange(0, world.getHeight() - context.boundingBox.getYSize()), true);
 
@@ -0,0 +1,105 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.world.gen.feature.structure.generic.placement;
+
+import ivorius.ivtoolkit.world.WorldCache;
+import ivorius.ivtoolkit.world.chunk.gen.StructureBoundingBoxes;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.gen.structure.StructureBoundingBox;
+
+import javax.annotation.Nullable;
+
+/**
+ * Keeps the world cache used to place structures around for a whole decoration pass, so that factors, rays and
+ * retries in the same area don't look up the same blocks again. The cache grows to cover all placements of the pass,
+ * up to {@link #MAX_SIZE} blocks per side.
+ * Since generating a structure changes the world, caches are dropped whenever one generates.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class PlacementCache implements AutoCloseable
+{
+    public static final int MAX_SIZE = 64;
+
+    private static final ThreadLocal<PlacementCache> current = new ThreadLocal<>();
+
+    private final WorldServer world;
+    @Nullable
+    private final PlacementCache parent;
+
+    private StructureBoundingBox bounds;
+    private WorldCache cache;
+
+    protected PlacementCache(WorldServer world, @Nullable PlacementCache parent)
+    {
+        this.world = world;
+        this.parent = parent;
+    }
+
+    /**
+     * Starts a decoration pass on this thread. Passes may nest, e.g. when generation causes other chunks to populate.
+     */
+    public static PlacementCache open(WorldServer world)
+    {
+        PlacementCache cache = new PlacementCache(world, current.get());
+        current.set(cache);
+        return cache;
+    }
+
+    public static WorldCache get(WorldServer world, StructureBoundingBox boundingBox)
+    {
+        StructureBoundingBox wholeHeight = StructureBoundingBoxes.wholeHeightBoundingBox(world, boundingBox);
+        PlacementCache pass = current.get();
+
+        if (pass == null || pass.world != world)
+            return new WorldCache(world, wholeHeight);
+
+        if (pass.cache != null && contains(pass.bounds, wholeHeight))
+            return pass.cache;
+
+        StructureBoundingBox bounds = new StructureBoundingBox(wholeHeight);
+        if (pass.bounds != null)
+        {
+            StructureBoundingBox union = new StructureBoundingBox(pass.bounds);
+            union.expandTo(wholeHeight);
+            if (union.getXSize() <= MAX_SIZE && union.getZSize() <= MAX_SIZE)
+                bounds = union;
+        }
+
+        pass.bounds = bounds;
+        return pass.cache = new WorldCache(world, bounds);
+    }
+
+    /**
+     * Drops the caches of all passes on this thread, e.g. because blocks were changed.
+     */
+    public static void invalidate()
+    {
+        for (PlacementCache pass = current.get(); pass != null; pass = pass.parent)
+        {
+            pass.bounds = null;
+            pass.cache = null;
+        }
+    }
+
+    protected static boolean contains(StructureBoundingBox outer, StructureBoundingBox inner)
+    {
+        return inner.minX >= outer.minX && inner.minY >= outer.minY && inner.minZ >= outer.minZ
+                && inner.maxX <= outer.maxX && inner.maxY <= outer.maxY && inner.maxZ <= outer.maxZ;
+    }
+
+    @Override
+    public void close()
+    {
+        if (current.get() == this)
+        {
+            if (parent != null)
+                current.set(parent);
+            else
+                current.remove();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.world.gen.feature.structure.generic.transformers;
+
+import gnu.trove.map.TObjectDoubleMap;
+import gnu.trove.map.hash.TObjectDoubleHashMap;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Cloud densities in structure-local coordinates, kept in a flat array spanning the structure plus some padding.
+ * Positions beyond the padding are only reached by unusually far-reaching clouds and fall back to a map.
+ * A density of 0 means the position is not part of the cloud.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class CloudField
+{
+    private final int padding;
+    private final int width, height, length;
+
+    private final double[] densities;
+    private final TObjectDoubleMap<BlockPos> overflow = new TObjectDoubleHashMap<>();
+
+    private int count;
+
+    public CloudField(int[] strucSize, int padding)
+    {
+        this.padding = padding;
+        this.width = strucSize[0] + padding * 2;
+        this.height = strucSize[1] + padding * 2;
+        this.length = strucSize[2] + padding * 2;
+        this.densities = new double[width * height * length];
+    }
+
+    /**
+     * @return The position's index into the array, or -1 if it lies outside.
+     */
+    public int index(int x, int y, int z)
+    {
+        x += padding;
+        y += padding;
+        z += padding;
+
+        if (x < 0 || y < 0 || z < 0 || x >= width || y >= height || z >= length)
+            return -1;
+
+        return (x * height + y) * length + z;
+    }
+
+    public int x(int index)
+    {
+        return index / (height * length) - padding;
+    }
+
+    public int y(int index)
+    {
+        return (index / length) % height - padding;
+    }
+
+    public int z(int index)
+    {
+        return index % length - padding;
+    }
+
+    public double get(int index)
+    {
+        return densities[index];
+    }
+
+    public double get(BlockPos pos)
+    {
+        int index = index(pos.getX(), pos.getY(), pos.getZ());
+        return index >= 0 ? densities[index] : overflow.get(pos);
+    }
+
+    public void set(int index, double density)
+    {
+        if (densities[index] <= 0)
+            count++;
+        densities[index] = density;
+    }
+
+    public void set(BlockPos pos, double density)
+    {
+        int index = index(pos.getX(), pos.getY(), pos.getZ());
+        if (index >= 0)
+            set(index, density);
+        else
+            overflow.put(pos.toImmutable(), density);
+    }
+
+    public int size()
+    {
+        return count + overflow.size();
+    }
+
+    public TObjectDoubleMap<BlockPos> toMap()
+    {
+        TObjectDoubleMap<BlockPos> map = new TObjectDoubleHashMap<>(size());
+
+        for (int i = 0; i < densities.length; i++)
+        {
+            if (densities[i] > 0)
+                map.put(new BlockPos(x(i), y(i), z(i)), densities[i]);
+        }
+        map.putAll(overflow);
+
+        return map;
+    }
+}
@@ -5,6 +5,13 @@
 
 package ivorius.reccomplex.world.gen.feature.structure.generic.transformers;
 
+import ivorius.ivtoolkit.tools.IvWorldData;
+import ivorius.reccomplex.world.gen.feature.structure.context.StructureLiveContext;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+
+import javax.annotation.Nullable;
+
 /**
  * Created by lukas on 25.10.16.
  */
@@ -13,9 +20,32 @@ public class RunTransformer
     public final TransformerMulti transformer;
     public final TransformerMulti.InstanceData instanceData;
 
+    @Nullable
+    public final SkipMask skipMask;
+    protected final boolean skipsInWorld;
+
     public RunTransformer(TransformerMulti transformer, TransformerMulti.InstanceData instanceData)
+    {
+        this(transformer, instanceData, null);
+    }
+
+    public RunTransformer(TransformerMulti transformer, TransformerMulti.InstanceData instanceData, @Nullable SkipMask skipMask)
     {
         this.transformer = transformer;
         this.instanceData = instanceData;
+        this.skipMask = skipMask;
+        this.skipsInWorld = skipMask != null && transformer.skipsInWorld(instanceData);
+    }
+
+    /**
+     * Same as the transformer's skipGeneration, but uses the skip mask if available.
+     */
+    public boolean skipGeneration(StructureLiveContext context, BlockPos pos, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
+    {
+        if (skipMask == null)
+            return transformer.skipGeneration(instanceData, context, pos, state, worldData, sourcePos);
+
+        return skipMask.isSkipped(sourcePos)
+                || (skipsInWorld && transformer.skipGenerationInWorld(instanceData, context, pos, state, worldData, sourcePos));
     }
 }
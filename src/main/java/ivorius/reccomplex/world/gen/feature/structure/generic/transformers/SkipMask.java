@@ -0,0 +1,71 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.world.gen.feature.structure.generic.transformers;
+
+import ivorius.ivtoolkit.blocks.BlockAreas;
+import ivorius.ivtoolkit.blocks.IvBlockCollection;
+import ivorius.ivtoolkit.math.AxisAlignedTransform2D;
+import ivorius.ivtoolkit.tools.IvWorldData;
+import ivorius.ivtoolkit.transform.PosTransformer;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.BitSet;
+
+/**
+ * The source positions a transformer skips regardless of the world (see {@link Transformer#skipSource}),
+ * evaluated once per structure instance.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class SkipMask
+{
+    private final BitSet skipped;
+    private final int width, height, length;
+
+    public SkipMask(BitSet skipped, int width, int height, int length)
+    {
+        this.skipped = skipped;
+        this.width = width;
+        this.height = height;
+        this.length = length;
+    }
+
+    public static SkipMask compute(TransformerMulti transformer, TransformerMulti.InstanceData instanceData, IvWorldData worldData, AxisAlignedTransform2D transform)
+    {
+        IvBlockCollection blockCollection = worldData.blockCollection;
+        SkipMask mask = new SkipMask(new BitSet(blockCollection.width * blockCollection.height * blockCollection.length),
+                blockCollection.width, blockCollection.height, blockCollection.length);
+
+        for (BlockPos sourcePos : BlockAreas.mutablePositions(blockCollection.area()))
+        {
+            // Same as the state passed to skipGeneration during generation
+            IBlockState state = PosTransformer.transformBlockState(blockCollection.getBlockState(sourcePos), transform);
+
+            if (transformer.skipSource(instanceData, state, worldData, sourcePos))
+                mask.skipped.set(mask.index(sourcePos));
+        }
+
+        return mask;
+    }
+
+    protected int index(BlockPos pos)
+    {
+        return (pos.getX() * height + pos.getY()) * length + pos.getZ();
+    }
+
+    public boolean isSkipped(BlockPos sourcePos)
+    {
+        return sourcePos.getX() >= 0 && sourcePos.getY() >= 0 && sourcePos.getZ() >= 0
+                && sourcePos.getX() < width && sourcePos.getY() < height && sourcePos.getZ() < length
+                && skipped.get(index(sourcePos));
+    }
+
+    public int cardinality()
+    {
+        return skipped.cardinality();
+    }
+}
@@ -95,6 +95,31 @@ public abstract class Transformer<S extends NBTStorable>
     }
 
     public boolean skipGeneration(S instanceData, StructureLiveContext context, BlockPos pos, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
+    {
+        return skipSource(instanceData, state, worldData, sourcePos)
+                || (skipsInWorld(instanceData) && skipGenerationInWorld(instanceData, context, pos, state, worldData, sourcePos));
+    }
+
+    /**
+     * The part of skipGeneration that only depends on the source block. This is evaluated once per instance (see {@link SkipMask}).
+     */
+    public boolean skipSource(S instanceData, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
+    {
+        return false;
+    }
+
+    /**
+     * The part of skipGeneration that depends on the world, and has to be evaluated for every spawned block.
+     */
+    public boolean skipGenerationInWorld(S instanceData, StructureLiveContext context, BlockPos pos, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
+    {
+        return false;
+    }
+
+    /**
+     * @return Whether skipGenerationInWorld is implemented.
+     */
+    public boolean skipsInWorld(S instanceData)
     {
         return false;
     }
@@ -5,10 +5,9 @@
 
 package ivorius.reccomplex.world.gen.feature.structure.generic.transformers;
 
-import com.google.common.collect.Sets;
 import gnu.trove.map.TObjectDoubleMap;
 import gnu.trove.map.hash.TObjectDoubleHashMap;
-import ivorius.ivtoolkit.blocks.BlockAreas;
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
 import ivorius.ivtoolkit.blocks.BlockPositions;
 import ivorius.ivtoolkit.blocks.IvBlockCollection;
 import ivorius.ivtoolkit.blocks.IvMutableBlockPos;
@@ -17,8 +16,8 @@ import ivorius.ivtoolkit.tools.IvWorldData;
 import ivorius.ivtoolkit.tools.NBTTagLists;
 import ivorius.ivtoolkit.world.chunk.gen.StructureBoundingBoxes;
 import ivorius.reccomplex.nbt.NBTStorable;
+import ivorius.reccomplex.nbt.PackedBlockPositions;
 import ivorius.reccomplex.world.gen.feature.structure.Environment;
-import ivorius.reccomplex.world.gen.feature.structure.context.StructureLiveContext;
 import ivorius.reccomplex.world.gen.feature.structure.context.StructurePrepareContext;
 import ivorius.reccomplex.world.gen.feature.structure.context.StructureSpawnContext;
 import net.minecraft.block.state.IBlockState;
@@ -27,6 +26,7 @@ import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
+import net.minecraftforge.common.util.Constants;
 
 import javax.annotation.Nonnull;
 import java.util.*;
@@ -37,6 +37,8 @@ import java.util.function.BiPredicate;
  */
 public abstract class TransformerAbstractCloud<S extends TransformerAbstractCloud.InstanceData> extends Transformer<S>
 {
+    public static final int MAX_CLOUD_PADDING = 16;
+
     public TransformerAbstractCloud(@Nonnull String id)
     {
         super(id);
@@ -66,7 +68,7 @@ public abstract class TransformerAbstractCloud<S extends TransformerAbstractClou
     public abstract double cloudExpansionRandomization();
 
     @Override
-    public boolean skipGeneration(S instanceData, StructureLiveContext context, BlockPos pos, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
+    public boolean skipSource(S instanceData, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
     {
         return matches(instanceData, state);
     }
@@ -76,9 +78,9 @@ public abstract class TransformerAbstractCloud<S extends TransformerAbstractClou
         Random random = context.random;
         Environment environment = context.environment;
         BlockPos lowerCoord = StructureBoundingBoxes.min(context.boundingBox);
-        int[] strucSize = new int[]{worldData.blockCollection.width, worldData.blockCollection.height, worldData.blockCollection.length};
+        IvBlockCollection blockCollection = worldData.blockCollection;
+        int[] strucSize = new int[]{blockCollection.width, blockCollection.height, blockCollection.length};
 
-        TObjectDoubleMap<BlockPos> cloud = new TObjectDoubleHashMap<>();
         BlurredValueField blurredValueField = new BlurredValueField(strucSize);
 
         int gridCoords = 1;
@@ -88,23 +90,15 @@ public abstract class TransformerAbstractCloud<S extends TransformerAbstractClou
         for (int i = 0; i < values; i++)
             blurredValueField.addValue(1 + (random.nextFloat() - random.nextFloat()) * (float) cloudExpansionRandomization() / 100f, random);
 
-        BlockAreas.mutablePositions(worldData.blockCollection.area()).forEach(pos ->
-        {
-            IBlockState state = worldData.blockCollection.getBlockState(pos);
-            BlockPos worldCoord = context.transform.apply(pos, strucSize).add(lowerCoord);
-            if (matches(instanceData, state) && canPenetrate(environment, worldData, worldCoord, 1, transformer, transformerInstanceData))
-                cloud.put(pos.toImmutable(), 1);
-        });
-
         double expansionDistance = cloudExpansionDistance();
-        BlockPos.MutableBlockPos sidePos = new BlockPos.MutableBlockPos();
-        BlockPos.MutableBlockPos sideWorldCoord = new BlockPos.MutableBlockPos();
+        boolean expands = expansionDistance > 0.000001;
 
-        if (expansionDistance > 0.000001)
+        // The code below will be called _often_, so let's cache the divisions
+        double[] sideFalloffs = new double[6];
+        List<EnumFacing> checkSides = new ArrayList<>();
+        double reach = 0;
+        if (expands)
         {
-            // The code below will be called _often_, so let's cache the divisions
-            double[] sideFalloffs = new double[6];
-            List<EnumFacing> checkSides = new ArrayList<>();
             for (EnumFacing side : EnumFacing.values())
             {
                 double sideExpansionDistance = cloudExpansionDistance(side);
@@ -113,37 +107,89 @@ public abstract class TransformerAbstractCloud<S extends TransformerAbstractClou
                 {
                     checkSides.add(side);
                     sideFalloffs[side.getIndex()] = sideFalloff;
+                    reach = Math.max(reach, 1 / sideFalloff);
                 }
             }
+        }
+
+        // Leave room for blurred values down to 0.5; anything further out goes to the field's overflow
+        CloudField cloud = new CloudField(strucSize, Math.min(MathHelper.ceil(reach * 2), MAX_CLOUD_PADDING));
+        IntArrayFIFOQueue frontier = new IntArrayFIFOQueue();
+        BitSet queued = new BitSet();
+        Deque<BlockPos> overflowFrontier = new ArrayDeque<>();
+
+        BlockPos.MutableBlockPos sourcePos = new BlockPos.MutableBlockPos();
+        BlockPos.MutableBlockPos worldCoord = new BlockPos.MutableBlockPos();
+
+        for (int x = 0; x < strucSize[0]; x++)
+            for (int y = 0; y < strucSize[1]; y++)
+                for (int z = 0; z < strucSize[2]; z++)
+                {
+                    IBlockState state = blockCollection.getBlockState(sourcePos.setPos(x, y, z));
+                    IvMutableBlockPos.add(context.transform.applyOn(sourcePos, worldCoord, strucSize), lowerCoord);
+                    if (matches(instanceData, state) && canPenetrate(environment, worldData, worldCoord, 1, transformer, transformerInstanceData))
+                    {
+                        int index = cloud.index(x, y, z);
+                        cloud.set(index, 1);
+                        frontier.enqueue(index);
+                        queued.set(index);
+                    }
+                }
 
-            visitRecursively(Sets.newHashSet(cloud.keySet()), (changed, pos) ->
+        if (expands)
+        {
+            while (!frontier.isEmpty() || !overflowFrontier.isEmpty())
             {
-                double density = cloud.get(pos);
+                double density;
+                if (!frontier.isEmpty())
+                {
+                    int index = frontier.dequeueInt();
+                    queued.clear(index);
+                    sourcePos.setPos(cloud.x(index), cloud.y(index), cloud.z(index));
+                    density = cloud.get(index);
+                }
+                else
+                {
+                    sourcePos.setPos(overflowFrontier.poll());
+                    density = cloud.get(sourcePos);
+                }
+
+                int x = sourcePos.getX(), y = sourcePos.getY(), z = sourcePos.getZ();
 
                 for (EnumFacing side : checkSides)
                 {
-                    double sideFalloff = sideFalloffs[side.getIndex()];
-
-                    IvMutableBlockPos.offset(pos, sidePos, side);
+                    int sideX = x + side.getFrontOffsetX(), sideY = y + side.getFrontOffsetY(), sideZ = z + side.getFrontOffsetZ();
+                    int sideIndex = cloud.index(sideX, sideY, sideZ);
+                    sourcePos.setPos(sideX, sideY, sideZ);
 
-                    double sideDensity = density - sideFalloff * blurredValueField.getValue(sidePos.getX(), sidePos.getY(), sidePos.getZ());
-                    if (sideDensity <= 0 || cloud.get(sidePos) >= sideDensity - 0.00001)
+                    double sideDensity = density - sideFalloffs[side.getIndex()] * blurredValueField.getValue(sideX, sideY, sideZ);
+                    if (sideDensity <= 0 || (sideIndex >= 0 ? cloud.get(sideIndex) : cloud.get(sourcePos)) >= sideDensity - 0.00001)
                         continue;
 
-                    IvMutableBlockPos.add(context.transform.applyOn(sidePos, sideWorldCoord, strucSize), lowerCoord);
-                    if (!canPenetrate(environment, worldData, sideWorldCoord, sideDensity, transformer, transformerInstanceData))
+                    IvMutableBlockPos.add(context.transform.applyOn(sourcePos, worldCoord, strucSize), lowerCoord);
+                    if (!canPenetrate(environment, worldData, worldCoord, sideDensity, transformer, transformerInstanceData))
                         continue;
 
-                    BlockPos immutableSidePos = sidePos.toImmutable();
-
-                    cloud.put(immutableSidePos, sideDensity);
-                    changed.add(immutableSidePos);
+                    if (sideIndex >= 0)
+                    {
+                        cloud.set(sideIndex, sideDensity);
+                        if (!queued.get(sideIndex))
+                        {
+                            frontier.enqueue(sideIndex);
+                            queued.set(sideIndex);
+                        }
+                    }
+                    else
+                    {
+                        BlockPos immutableSidePos = sourcePos.toImmutable();
+                        cloud.set(immutableSidePos, sideDensity);
+                        overflowFrontier.add(immutableSidePos);
+                    }
                 }
-                return true;
-            });
+            }
         }
 
-        return cloud;
+        return cloud.toMap();
     }
 
     public boolean canPenetrate(Environment environment, IvWorldData worldData, BlockPos pos, double density, TransformerMulti transformer, TransformerMulti.InstanceData transformerID)
@@ -160,6 +206,8 @@ public abstract class TransformerAbstractCloud<S extends TransformerAbstractClou
     public void configureInstanceData(S s, StructurePrepareContext context, IvWorldData worldData, RunTransformer transformer)
     {
         s.cloud = buildCloud(s, worldData, context, transformer.transformer, transformer.instanceData);
+        // Stored densities are quantized; use the same values for this spawn as for later complements
+        s.cloud.transformValues(PackedBlockPositions::roundDensity);
     }
 
     @Override
@@ -194,12 +242,24 @@ public abstract class TransformerAbstractCloud<S extends TransformerAbstractClou
         public void readFromNBT(NBTBase base)
         {
             NBTTagCompound compound = base instanceof NBTTagCompound ? (NBTTagCompound) base : new NBTTagCompound();
-            NBTTagLists.compoundsFrom(compound, "cloud").forEach(cloudCompound ->
+
+            if (compound.hasKey("packedCloud", Constants.NBT.TAG_COMPOUND))
             {
-                BlockPos pos = BlockPositions.readFromNBT("particle", cloudCompound);
-                if (pos != null)
-                    cloud.put(pos, cloudCompound.getDouble("density"));
-            });
+                PackedBlockPositions positions = PackedBlockPositions.readFromNBT(compound.getCompoundTag("packedCloud"));
+                double[] densities = PackedBlockPositions.readDensities(compound.getByteArray("cloudDensities"));
+
+                for (int i = 0; i < positions.size() && i < densities.length; i++)
+                    cloud.put(positions.get(i), densities[i]);
+            }
+            else // Legacy
+            {
+                NBTTagLists.compoundsFrom(compound, "cloud").forEach(cloudCompound ->
+                {
+                    BlockPos pos = BlockPositions.readFromNBT("particle", cloudCompound);
+                    if (pos != null)
+                        cloud.put(pos, cloudCompound.getDouble("density"));
+                });
+            }
         }
 
         @Override
@@ -207,16 +267,13 @@ public abstract class TransformerAbstractCloud<S extends TransformerAbstractClou
         {
             NBTTagCompound compound = new NBTTagCompound();
 
-            List<NBTTagCompound> cloudCompounds = new ArrayList<>();
-            cloud.forEachEntry((pos, density) ->
-            {
-                NBTTagCompound cloudCompound = new NBTTagCompound();
-                BlockPositions.writeToNBT("particle", pos, cloudCompound);
-                cloudCompound.setDouble("density", density);
-                cloudCompounds.add(cloudCompound);
-                return true;
-            });
-            NBTTagLists.writeTo(compound, "cloud", cloudCompounds);
+            PackedBlockPositions positions = PackedBlockPositions.of(cloud.keySet());
+            double[] densities = new double[positions.size()];
+            for (int i = 0; i < densities.length; i++)
+                densities[i] = cloud.get(positions.get(i));
+
+            compound.setTag("packedCloud", positions.writeToNBT());
+            compound.setByteArray("cloudDensities", PackedBlockPositions.writeDensities(densities));
 
             return compound;
         }
@@ -23,7 +23,6 @@ import ivorius.reccomplex.utils.algebra.ExpressionCache;
 import ivorius.reccomplex.world.gen.feature.structure.context.*;
 import ivorius.reccomplex.utils.expression.BlockExpression;
 import ivorius.reccomplex.utils.expression.PositionedBlockExpression;
-import net.minecraft.block.state.IBlockState;
 import net.minecraft.nbt.NBTBase;
 import net.minecraft.util.math.BlockPos;
 import net.minecraftforge.fml.relauncher.Side;
@@ -73,12 +72,6 @@ public class TransformerEnsureBlocks extends Transformer<NBTNone>
         return true;
     }
 
-    @Override
-    public boolean skipGeneration(NBTNone instanceData, StructureLiveContext context, BlockPos pos, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
-    {
-        return false;
-    }
-
     @Override
     public void transform(NBTNone instanceData, Phase phase, StructureSpawnContext context, IvWorldData worldData, RunTransformer transformer)
     {
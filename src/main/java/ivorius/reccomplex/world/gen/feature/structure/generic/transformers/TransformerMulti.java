@@ -177,6 +177,46 @@ public class TransformerMulti extends Transformer<TransformerMulti.InstanceData>
                 .anyMatch(input -> input.getLeft().skipGeneration(input.getRight(), context, pos, state, worldData, sourcePos));
     }
 
+    @Override
+    public boolean skipSource(InstanceData instanceData, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
+    {
+        if (instanceData.deactivated)
+            return false;
+
+        for (Pair<Transformer, NBTStorable> pair : instanceData.pairedTransformers)
+        {
+            //noinspection unchecked
+            if (pair.getLeft().skipSource(pair.getRight(), state, worldData, sourcePos))
+                return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean skipGenerationInWorld(InstanceData instanceData, StructureLiveContext context, BlockPos pos, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
+    {
+        if (instanceData.deactivated)
+            return false;
+
+        for (Pair<Transformer, NBTStorable> pair : instanceData.pairedTransformers)
+        {
+            //noinspection unchecked
+            if (pair.getLeft().skipsInWorld(pair.getRight()) && pair.getLeft().skipGenerationInWorld(pair.getRight(), context, pos, state, worldData, sourcePos))
+                return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean skipsInWorld(InstanceData instanceData)
+    {
+        //noinspection unchecked
+        return !instanceData.deactivated && instanceData.pairedTransformers.stream()
+                .anyMatch(input -> input.getLeft().skipsInWorld(input.getRight()));
+    }
+
     @Override
     public void transform(InstanceData instanceData, Phase phase, StructureSpawnContext context, IvWorldData worldData, RunTransformer transformer)
     {
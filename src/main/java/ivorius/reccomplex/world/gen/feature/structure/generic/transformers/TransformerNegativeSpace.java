@@ -52,11 +52,17 @@ public class TransformerNegativeSpace extends Transformer<NBTNone>
     }
 
     @Override
-    public boolean skipGeneration(NBTNone instanceData, StructureLiveContext context, BlockPos pos, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
+    public boolean skipGenerationInWorld(NBTNone instanceData, StructureLiveContext context, BlockPos pos, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
     {
         return sourceMatcher.test(state) && (destMatcher.evaluate(() -> PositionedBlockExpression.Argument.at(context.environment.world, pos)));
     }
 
+    @Override
+    public boolean skipsInWorld(NBTNone instanceData)
+    {
+        return true;
+    }
+
     @SideOnly(Side.CLIENT)
     @Override
     public String getDisplayString()
@@ -24,8 +24,8 @@ import ivorius.reccomplex.gui.table.TableNavigator;
 import ivorius.reccomplex.gui.table.datasource.TableDataSource;
 import ivorius.reccomplex.json.JsonUtils;
 import ivorius.reccomplex.nbt.NBTStorable;
+import ivorius.reccomplex.nbt.PackedBlockPositions;
 import ivorius.reccomplex.world.gen.feature.structure.Structures;
-import ivorius.reccomplex.world.gen.feature.structure.context.StructureLiveContext;
 import ivorius.reccomplex.world.gen.feature.structure.context.StructureLoadContext;
 import ivorius.reccomplex.world.gen.feature.structure.context.StructurePrepareContext;
 import ivorius.reccomplex.world.gen.feature.structure.context.StructureSpawnContext;
@@ -146,7 +146,7 @@ public class TransformerRuins extends Transformer<TransformerRuins.InstanceData>
     }
 
     @Override
-    public boolean skipGeneration(InstanceData instanceData, StructureLiveContext context, BlockPos pos, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
+    public boolean skipSource(InstanceData instanceData, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
     {
         if (instanceData.fallingBlocks.contains(sourcePos))
             return true;
@@ -236,7 +236,7 @@ public class TransformerRuins extends Transformer<TransformerRuins.InstanceData>
                     {
                         IBlockState state = world.getBlockState(worldCoord);
 
-                        if (!transformer.transformer.skipGeneration(transformer.instanceData, context, worldCoord, state, worldData, sourceCoord))
+                        if (!transformer.skipGeneration(context, worldCoord, state, worldData, sourceCoord))
                             decayBlock(world, context.random, state, worldCoord, relevantBB);
                     }
                 }
@@ -515,7 +515,14 @@ public class TransformerRuins extends Transformer<TransformerRuins.InstanceData>
             volumeField = compound.hasKey("volumeField", Constants.NBT.TAG_COMPOUND)
                     ? NBTCompoundObjects.read(compound.getCompoundTag("volumeField"), BlurredValueField::new)
                     : null;
-            fallingBlocks.addAll(NBTTagLists.intArraysFrom(compound, "fallingBlocks").stream().map(BlockPositions::fromIntArray).collect(Collectors.toList()));
+            if (compound.hasKey("packedFallingBlocks", Constants.NBT.TAG_COMPOUND))
+            {
+                PackedBlockPositions packed = PackedBlockPositions.readFromNBT(compound.getCompoundTag("packedFallingBlocks"));
+                for (int i = 0; i < packed.size(); i++)
+                    fallingBlocks.add(packed.get(i));
+            }
+            else // Legacy
+                fallingBlocks.addAll(NBTTagLists.intArraysFrom(compound, "fallingBlocks").stream().map(BlockPositions::fromIntArray).collect(Collectors.toList()));
             clearDecayCache();
         }
 
@@ -529,7 +536,7 @@ public class TransformerRuins extends Transformer<TransformerRuins.InstanceData>
                 compound.setTag("field", NBTCompoundObjects.write(surfaceField));
             if (volumeField != null)
                 compound.setTag("volumeField", NBTCompoundObjects.write(volumeField));
-            NBTTagLists.writeIntArraysTo(compound, "fallingBlocks", fallingBlocks.stream().map(BlockPositions::toIntArray).collect(Collectors.toList()));
+            compound.setTag("packedFallingBlocks", PackedBlockPositions.of(fallingBlocks).writeToNBT());
             return compound;
         }
 
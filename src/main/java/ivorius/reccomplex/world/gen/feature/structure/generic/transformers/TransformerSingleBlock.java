@@ -32,11 +32,18 @@ public abstract class TransformerSingleBlock<S extends NBTStorable> extends Tran
     }
 
     @Override
-    public boolean skipGeneration(S instanceData, StructureLiveContext context, BlockPos pos, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
+    public boolean skipGenerationInWorld(S instanceData, StructureLiveContext context, BlockPos pos, IBlockState state, IvWorldData worldData, BlockPos sourcePos)
     {
         return matches(context.environment, instanceData, state);
     }
 
+    @Override
+    public boolean skipsInWorld(S instanceData)
+    {
+        // Matching may depend on the environment
+        return true;
+    }
+
     @Override
     public void transform(S instanceData, Phase phase, StructureSpawnContext context, IvWorldData worldData, RunTransformer transformer)
     {
@@ -15,6 +15,7 @@ import ivorius.reccomplex.RecurrentComplex;
 import ivorius.reccomplex.temp.RCMover;
 import ivorius.reccomplex.temp.RCPosTransformer;
 import ivorius.reccomplex.utils.accessor.RCAccessorEntity;
+import ivorius.reccomplex.world.gen.feature.ChunkSectionWriter;
 import net.minecraft.block.Block;
 import net.minecraft.block.material.Material;
 import net.minecraft.block.state.IBlockState;
@@ -175,28 +176,31 @@ public class SchematicFile
                 tileEntities.put(src, tileEntity);
         }
 
-        for (int pass = 0; pass < 2; pass++)
+        try (ChunkSectionWriter writer = new ChunkSectionWriter(world))
         {
-            for (BlockPos sourcePos : area())
+            for (int pass = 0; pass < 2; pass++)
             {
-                int index = getBlockIndex(sourcePos);
-                IBlockState blockState = PosTransformer.transformBlockState(blockStates[index], transform);
-
-                if (blockState != null && getPass(blockState) == pass)
+                for (BlockPos sourcePos : area())
                 {
-                    BlockPos worldPos = origin.add(transform.apply(sourcePos, areaSize));
-                    world.setBlockState(worldPos, blockState, 2);
+                    int index = getBlockIndex(sourcePos);
+                    IBlockState blockState = PosTransformer.transformBlockState(blockStates[index], transform);
 
-                    TileEntity tileEntity = tileEntities.get(sourcePos);
-                    if (tileEntity != null)
+                    if (blockState != null && getPass(blockState) == pass)
                     {
-                        world.setBlockState(worldPos, blockState, 2); // Second time to ensure state, see BlockFurnace
+                        BlockPos worldPos = origin.add(transform.apply(sourcePos, areaSize));
+                        writer.setBlockState(worldPos, blockState, 2);
+
+                        TileEntity tileEntity = tileEntities.get(sourcePos);
+                        if (tileEntity != null)
+                        {
+                            world.setBlockState(worldPos, blockState, 2); // Second time to ensure state, see BlockFurnace
 
-                        RCPosTransformer.transformAdditionalData(tileEntity, transform, areaSize);
-                        RCMover.moveAdditionalData(tileEntity, origin);
+                            RCPosTransformer.transformAdditionalData(tileEntity, transform, areaSize);
+                            RCMover.moveAdditionalData(tileEntity, origin);
 
-                        world.setTileEntity(worldPos, tileEntity);
-                        tileEntity.updateContainingBlockInfo();
+                            world.setTileEntity(worldPos, tileEntity);
+                            tileEntity.updateContainingBlockInfo();
+                        }
                     }
                 }
             }
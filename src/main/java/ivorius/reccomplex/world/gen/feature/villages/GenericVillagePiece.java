@@ -185,7 +185,11 @@ public class GenericVillagePiece extends StructureVillagePieces.Village
                 .seed(seed).lowerCoord(StructureBoundingBoxes.min(boundingBox)).transform(transform).generationBB(StructureBoundingBoxes.wholeHeightBoundingBox(world, generationBB))
                 .generationLayer(componentType).structureID(structureID).maturity(firstTime ? StructureSpawnContext.GenerateMaturity.FIRST : StructureSpawnContext.GenerateMaturity.COMPLEMENT)
                 .instanceData(this.instanceData).generate();
-        entry.ifPresent(structureEntry -> structureEntry.setPreventComplementation(true));
+        entry.ifPresent(structureEntry ->
+        {
+            structureEntry.setPreventComplementation(true);
+            WorldStructureGenerationData.get(world).markDirty(structureEntry);
+        });
 
         startedGeneration = true;
     }
@@ -72,7 +72,7 @@ public class WorldScriptHolder implements WorldScript<NBTNone>
     public void generate(StructureSpawnContext context, RunTransformer transformer, NBTNone instanceData, BlockPos pos)
     {
         GenericStructure structure = new GenericStructure();
-        structure.worldDataCompound = worldData.copy();
+        structure.setWorldDataCompound(worldData.copy());
 
         // TODO Pass the transformer of context
         new StructureGenerator<>(structure)
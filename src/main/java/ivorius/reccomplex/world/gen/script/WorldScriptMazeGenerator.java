@@ -16,6 +16,7 @@ import ivorius.ivtoolkit.tools.IvTranslations;
 import ivorius.ivtoolkit.tools.NBTCompoundObjects;
 import ivorius.ivtoolkit.tools.NBTTagLists;
 import ivorius.reccomplex.RCConfig;
+import ivorius.reccomplex.RecurrentComplex;
 import ivorius.reccomplex.gui.table.TableDelegate;
 import ivorius.reccomplex.gui.table.TableNavigator;
 import ivorius.reccomplex.gui.table.datasource.TableDataSource;
@@ -32,6 +33,7 @@ import ivorius.reccomplex.world.gen.feature.structure.generic.Selection;
 import ivorius.reccomplex.world.gen.feature.structure.generic.generation.MazeGeneration;
 import ivorius.reccomplex.world.gen.feature.structure.generic.maze.*;
 import ivorius.reccomplex.world.gen.feature.structure.generic.maze.rules.BlockedConnectorStrategy;
+import ivorius.reccomplex.world.gen.feature.structure.generic.maze.rules.CancellationStrategy;
 import ivorius.reccomplex.world.gen.feature.structure.generic.maze.rules.LimitAABBStrategy;
 import ivorius.reccomplex.world.gen.feature.structure.generic.maze.rules.MazeRule;
 import ivorius.reccomplex.world.gen.feature.structure.generic.maze.rules.MazeRuleRegistry;
@@ -251,6 +253,39 @@ public class WorldScriptMazeGenerator implements WorldScript<WorldScriptMazeGene
                 )
                 .collect(Collectors.toList());
 
+        int totalRooms = mazeComponent.rooms.compile(true).size();
+        int reverses = RCConfig.mazePlacementReversesPerRoom >= 0 ? MathHelper.floor(totalRooms * RCConfig.mazePlacementReversesPerRoom + 0.5f) : MazeComponentConnector.INFINITE_REVERSES;
+
+        // Attempts with derived seeds, so the result only depends on the context's random
+        int attempts = Math.max(1, RCConfig.mazeSolverAttempts);
+        List<Callable<List<PlacedMazeComponent<MazeComponentStructure<Connector>, Connector>>>> solvers = new ArrayList<>();
+        for (int i = 0; i < attempts; i++)
+        {
+            solvers.add(prepareSolver(attempts > 1 ? new Random(random.nextLong()) : random, environment, factory, defaultConnector, blockedConnections,
+                    outsideBoundsLower, outsideBoundsHigher, transformedComponents, reverses));
+        }
+
+        try
+        {
+            return MazeSolvers.solveFirst(solvers, RCConfig.mazeTimeout);
+        }
+        catch (TimeoutException e)
+        {
+            RecurrentComplex.logger.debug("Maze generation timed out: " + mazeID + " (" + MazeSolvers.metrics() + ")");
+            throw new GenerationException("Maze generation timed out: " + mazeID);
+        }
+        catch (ExecutionException | InterruptedException e)
+        {
+            Throwable t = e.getCause();
+
+            if (t instanceof Error) throw (Error) t;
+            else throw new GenerationException("Error generating maze; " + mazeID, t);
+        }
+    }
+
+    protected Callable<List<PlacedMazeComponent<MazeComponentStructure<Connector>, Connector>>> prepareSolver(Random random, Environment environment, ConnectorFactory factory, Connector defaultConnector, Set<Connector> blockedConnections,
+                                                                                                          int[] outsideBoundsLower, int[] outsideBoundsHigher, List<MazeComponentStructure<Connector>> transformedComponents, int reverses)
+    {
         MorphingMazeComponent<Connector> maze = new SetMazeComponent<>();
 
         WorldScriptMazeGenerator.enclose(maze, new MazeRoom(outsideBoundsLower), new MazeRoom(outsideBoundsHigher), defaultConnector);
@@ -268,34 +303,14 @@ public class WorldScriptMazeGenerator implements WorldScript<WorldScriptMazeGene
         List<MazePredicate<Connector>> predicates = rules.stream().map(r -> r.build(this, blockedConnections, factory, transformedComponents, connectorStrategy)).filter(Objects::nonNull).collect(Collectors.toCollection(ArrayList::new));
         predicates.add(new LimitAABBStrategy<>(outsideBoundsHigher));
         predicates.add(new BlockedConnectorStrategy<>(blockedConnections));
+        predicates.add(0, new CancellationStrategy<>());
 
-        int totalRooms = mazeComponent.rooms.compile(true).size();
-
-        final ExecutorService executor = Executors.newSingleThreadExecutor();
-        Future<List<PlacedMazeComponent<MazeComponentStructure<Connector>, Connector>>> future = executor.submit(() -> MazeComponentConnector.connect(maze,
+        return () -> MazeComponentConnector.connect(maze,
                 transformedComponents, connectorStrategy,
                 new MazePredicateMany<>(predicates),
                 random,
-                RCConfig.mazePlacementReversesPerRoom >= 0 ? MathHelper.floor(totalRooms * RCConfig.mazePlacementReversesPerRoom + 0.5f) : MazeComponentConnector.INFINITE_REVERSES
-        ));
-        executor.shutdown();
-
-        try
-        {
-            return future.get(RCConfig.mazeTimeout, TimeUnit.MILLISECONDS);
-        }
-        catch (TimeoutException e)
-        {
-            future.cancel(true);
-            throw new GenerationException("Maze generation timed out: " + mazeID);
-        }
-        catch (ExecutionException | InterruptedException e)
-        {
-            Throwable t = e.getCause();
-
-            if (t instanceof Error) throw (Error) t;
-            else throw new GenerationException("Error generating maze; " + mazeID, t);
-        }
+                reverses
+        );
     }
 
     public static class InstanceData implements NBTStorable
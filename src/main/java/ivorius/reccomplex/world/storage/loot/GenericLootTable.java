@@ -11,14 +11,17 @@ import com.google.gson.*;
 import ivorius.ivtoolkit.random.WeightedSelector;
 import ivorius.ivtoolkit.tools.IvTranslations;
 import ivorius.reccomplex.RecurrentComplex;
+import ivorius.reccomplex.files.SimpleLeveledRegistry;
 import ivorius.reccomplex.json.ItemStackSerializer;
 import ivorius.reccomplex.json.JsonUtils;
 import ivorius.reccomplex.json.NBTToJson;
+import ivorius.reccomplex.utils.AliasTable;
 import ivorius.reccomplex.utils.expression.DependencyExpression;
 import net.minecraft.item.ItemStack;
 import net.minecraft.util.WeightedRandom;
 import net.minecraft.world.WorldServer;
 
+import javax.annotation.Nullable;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
@@ -35,6 +38,16 @@ public class GenericLootTable implements LootTable
 
     public final List<Component> components = new ArrayList<>();
 
+    /**
+     * Components with resolved dependencies, each with its items, ready to be rolled.
+     * Built on the first roll, and again after any registry changed since dependencies may name files in them.
+     * {@link GenericItemCollectionRegistry} puts together a new table whenever its components change;
+     * call {@link #invalidate()} when changing the components otherwise.
+     */
+    @Nullable
+    protected AliasTable<AliasTable<RandomizedItemStack>> compiled;
+    protected int compiledRegistryChanges;
+
     public static Gson createGson()
     {
         GsonBuilder builder = new GsonBuilder();
@@ -51,17 +64,42 @@ public class GenericLootTable implements LootTable
     @Override
     public ItemStack getRandomItemStack(WorldServer server, Random random)
     {
-        int max = 0;
+        AliasTable<AliasTable<RandomizedItemStack>> compiled = this.compiled;
+        if (compiled == null || compiledRegistryChanges != SimpleLeveledRegistry.changes())
+            compiled = compile();
+
+        AliasTable<RandomizedItemStack> items = compiled.select(random);
+        if (items != null)
+            return items.select(random).generateStack(random);
+
+        return ItemStack.EMPTY;
+    }
+
+    public AliasTable<AliasTable<RandomizedItemStack>> compile()
+    {
+        int registryChanges = SimpleLeveledRegistry.changes();
+        AliasTable.Builder<AliasTable<RandomizedItemStack>> builder = new AliasTable.Builder<>();
+
         for (Component component : components)
         {
-            component.updateWeightCache();
-            max += component.itemWeight;
+            if (!component.areDependenciesResolved())
+                continue;
+
+            AliasTable<RandomizedItemStack> items = AliasTable.of(component.items, RandomizedItemStack::getWeight);
+            if (!items.isEmpty())
+            {
+                component.updateWeightCache();
+                builder.add(component.itemWeight, items);
+            }
         }
 
-        if (max > 0)
-            return WeightedRandom.getRandomItem(random, components, max).getRandomItemStack(random);
+        compiledRegistryChanges = registryChanges;
+        return compiled = builder.build();
+    }
 
-        return ItemStack.EMPTY;
+    public void invalidate()
+    {
+        compiled = null;
     }
 
     @Override
@@ -5,17 +5,29 @@
 
 package ivorius.reccomplex.world.storage.loot;
 
+import ivorius.ivtoolkit.tools.NBTTagLists;
 import ivorius.reccomplex.RecurrentComplex;
 import ivorius.reccomplex.item.GeneratingItem;
+import ivorius.reccomplex.utils.ItemHandlers;
 import ivorius.reccomplex.world.gen.feature.structure.context.StructureSpawnContext;
 import ivorius.reccomplex.world.gen.feature.structure.registry.MCRegistrySpecial;
+import net.minecraft.inventory.InventoryHelper;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.WorldServer;
+import net.minecraftforge.common.util.Constants;
 import net.minecraftforge.items.IItemHandlerModifiable;
+import net.minecraftforge.items.ItemHandlerHelper;
+import net.minecraftforge.items.ItemStackHandler;
 import org.apache.commons.lang3.tuple.Triple;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -25,6 +37,8 @@ import java.util.Random;
  */
 public class LootGenerationHandler
 {
+    public static final String PENDING_LOOT_KEY = RecurrentComplex.MOD_ID + ":pendingLoot";
+
     public static void generateAllTags(WorldServer server, IItemHandlerModifiable inventory, MCRegistrySpecial.ItemHidingRegistry registry, Random random)
     {
         List<Triple<ItemStack, GeneratingItem, Integer>> foundTags = new ArrayList<>();
@@ -71,4 +85,95 @@ public class LootGenerationHandler
     {
         generateAllTags(context.environment.world, inventory, RecurrentComplex.specialRegistry.itemHidingMode(), context.random);
     }
+
+    /**
+     * Takes the generation tags out of the inventory and keeps them in the tile entity, together with a seed,
+     * to be generated once a player gets to see the inventory (see {@link #generatePendingTags(WorldServer, BlockPos)}).
+     */
+    public static void deferAllTags(@Nonnull StructureSpawnContext context, TileEntity tileEntity, IItemHandlerModifiable inventory)
+    {
+        MCRegistrySpecial.ItemHidingRegistry registry = RecurrentComplex.specialRegistry.itemHidingMode();
+        NBTTagList tags = new NBTTagList();
+
+        for (int i = 0; i < inventory.getSlots(); i++)
+        {
+            ItemStack stack = inventory.getStackInSlot(i);
+
+            if (!stack.isEmpty() && registry.containedItem(stack) instanceof GeneratingItem)
+            {
+                NBTTagCompound tag = stack.writeToNBT(new NBTTagCompound());
+                tag.setInteger("slot", i);
+                tags.appendTag(tag);
+
+                inventory.setStackInSlot(i, ItemStack.EMPTY);
+            }
+        }
+
+        if (tags.hasNoTags())
+            return;
+
+        NBTTagCompound pending = new NBTTagCompound();
+        pending.setLong("seed", context.random.nextLong());
+        pending.setTag("tags", tags);
+        tileEntity.getTileData().setTag(PENDING_LOOT_KEY, pending);
+        tileEntity.markDirty();
+    }
+
+    /**
+     * Generates deferred loot at the position, and in its horizontal neighbors since inventories like chests can be
+     * connected.
+     * Loot is added to what is in the inventory by then; whatever doesn't fit is dropped.
+     */
+    public static void generatePendingTags(WorldServer world, BlockPos pos)
+    {
+        generatePendingTags(world, world.getTileEntity(pos));
+        for (EnumFacing facing : EnumFacing.HORIZONTALS)
+        {
+            BlockPos side = pos.offset(facing);
+            if (world.isBlockLoaded(side))
+                generatePendingTags(world, world.getTileEntity(side));
+        }
+    }
+
+    public static boolean generatePendingTags(WorldServer world, @Nullable TileEntity tileEntity)
+    {
+        if (tileEntity == null || !tileEntity.getTileData().hasKey(PENDING_LOOT_KEY, Constants.NBT.TAG_COMPOUND))
+            return false;
+
+        NBTTagCompound pending = tileEntity.getTileData().getCompoundTag(PENDING_LOOT_KEY);
+        tileEntity.getTileData().removeTag(PENDING_LOOT_KEY);
+        tileEntity.markDirty();
+
+        if (!ItemHandlers.hasModifiable(tileEntity, null))
+            return false;
+
+        IItemHandlerModifiable inventory = ItemHandlers.getModifiable(tileEntity, null);
+
+        // Roll aside and merge, so that whatever was put into the inventory in the meantime stays
+        ItemStackHandler rolled = new ItemStackHandler(inventory.getSlots());
+        for (NBTTagCompound tag : NBTTagLists.compoundsFrom(pending, "tags"))
+        {
+            int slot = tag.getInteger("slot");
+            if (slot >= 0 && slot < rolled.getSlots())
+                rolled.setStackInSlot(slot, new ItemStack(tag));
+        }
+
+        generateAllTags(world, rolled, RecurrentComplex.specialRegistry.itemHidingMode(), new Random(pending.getLong("seed")));
+
+        BlockPos pos = tileEntity.getPos();
+        for (int i = 0; i < rolled.getSlots(); i++)
+        {
+            ItemStack stack = rolled.getStackInSlot(i);
+            if (stack.isEmpty())
+                continue;
+
+            stack = inventory.insertItem(i, stack, false);
+            stack = ItemHandlerHelper.insertItemStacked(inventory, stack, false);
+
+            if (!stack.isEmpty())
+                InventoryHelper.spawnItemStack(world, pos.getX(), pos.getY(), pos.getZ(), stack);
+        }
+
+        return true;
+    }
 }
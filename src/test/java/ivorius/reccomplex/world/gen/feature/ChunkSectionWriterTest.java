@@ -0,0 +1,222 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.world.gen.feature;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.profiler.Profiler;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.*;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkPrimer;
+import net.minecraft.world.chunk.EmptyChunk;
+import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraft.world.storage.WorldInfo;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+
+import static org.junit.Assert.*;
+
+/**
+ * Places a 64³ structure through the world and through the writer, and compares the results and the time taken.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class ChunkSectionWriterTest
+{
+    public static final int SIZE = 64;
+    public static final int GROUND = 64;
+    public static final BlockPos ORIGIN = new BlockPos(8, GROUND, 8);
+
+    @BeforeClass
+    public static void bootstrap()
+    {
+        Bootstrap.register();
+    }
+
+    /**
+     * A closed stone box with glass windows and a glowstone lamp inside, so both sky and block light matter.
+     */
+    protected static IBlockState structure(int x, int y, int z)
+    {
+        boolean shell = x == 0 || y == 0 || z == 0 || x == SIZE - 1 || y == SIZE - 1 || z == SIZE - 1;
+        if (shell)
+            return y > 8 && y < 16 && (x & 7) == 4 ? Blocks.GLASS.getDefaultState() : Blocks.STONE.getDefaultState();
+
+        return x == SIZE / 2 && y == SIZE / 2 && z == SIZE / 2 ? Blocks.GLOWSTONE.getDefaultState() : Blocks.AIR.getDefaultState();
+    }
+
+    protected static long place(World world, SetBlock setBlock)
+    {
+        long start = System.nanoTime();
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        for (int x = 0; x < SIZE; x++)
+            for (int y = 0; y < SIZE; y++)
+                for (int z = 0; z < SIZE; z++)
+                    setBlock.set(pos.setPos(ORIGIN.getX() + x, ORIGIN.getY() + y, ORIGIN.getZ() + z).toImmutable(), structure(x, y, z));
+        return System.nanoTime() - start;
+    }
+
+    protected static long placeThroughWorld(World world)
+    {
+        return place(world, (pos, state) -> world.setBlockState(pos, state, 2));
+    }
+
+    protected static long placeThroughWriter(World world)
+    {
+        ChunkSectionWriter writer = new ChunkSectionWriter(world, true, true)
+        {
+            @Override
+            protected boolean isWatched(int x, int z)
+            {
+                return false;
+            }
+        };
+
+        long time = place(world, (pos, state) -> writer.setBlockState(pos, state, 2));
+
+        long start = System.nanoTime();
+        writer.close();
+        return time + System.nanoTime() - start;
+    }
+
+    @Test
+    public void writerMatchesWorld()
+    {
+        TestWorld expected = new TestWorld();
+        placeThroughWorld(expected);
+
+        TestWorld actual = new TestWorld();
+        placeThroughWriter(actual);
+
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        for (int x = -1; x <= SIZE; x++)
+            for (int z = -1; z <= SIZE; z++)
+            {
+                pos.setPos(ORIGIN.getX() + x, 0, ORIGIN.getZ() + z);
+                assertEquals("Height at " + pos, expected.getHeight(pos).getY(), actual.getHeight(pos).getY());
+
+                for (int y = -1; y <= SIZE; y++)
+                {
+                    pos.setPos(ORIGIN.getX() + x, ORIGIN.getY() + y, ORIGIN.getZ() + z);
+                    assertEquals("Block at " + pos, expected.getBlockState(pos), actual.getBlockState(pos));
+                }
+            }
+
+        // Closed off from the sky, and lit by the lamp
+        BlockPos inside = ORIGIN.add(SIZE / 2, SIZE / 2 + 1, SIZE / 2);
+        assertEquals(0, actual.getLightFor(EnumSkyBlock.SKY, ORIGIN.add(SIZE / 2, SIZE - 4, SIZE / 2)));
+        assertEquals(expected.getLightFor(EnumSkyBlock.BLOCK, inside), actual.getLightFor(EnumSkyBlock.BLOCK, inside));
+        // Sky light comes in through the windows
+        BlockPos window = ORIGIN.add(4, 12, 1); // Right behind one
+        assertEquals(expected.getLightFor(EnumSkyBlock.SKY, window), actual.getLightFor(EnumSkyBlock.SKY, window));
+    }
+
+    @Test
+    public void benchmarkPlacement()
+    {
+        // Warm up both paths before measuring
+        placeThroughWorld(new TestWorld());
+        placeThroughWriter(new TestWorld());
+
+        long world = placeThroughWorld(new TestWorld());
+        long writer = placeThroughWriter(new TestWorld());
+
+        System.out.println(String.format("Placing %d³ blocks: %.1f ms through the world, %.1f ms through the writer (%.1fx)",
+                SIZE, world / 1e6, writer / 1e6, (double) world / writer));
+    }
+
+    protected interface SetBlock
+    {
+        void set(BlockPos pos, IBlockState state);
+    }
+
+    /**
+     * A flat stone world around the structure, kept in memory.
+     */
+    protected static class TestWorld extends World
+    {
+        private Long2ObjectMap<Chunk> chunks;
+
+        public TestWorld()
+        {
+            super(null, new WorldInfo(new WorldSettings(0, GameType.CREATIVE, false, false, WorldType.FLAT), "test"),
+                    new WorldProviderSurface(), new Profiler(), false);
+            provider.setWorld(this);
+            chunkProvider = createChunkProvider();
+
+            int min = (ORIGIN.getX() >> 4) - 2, max = ((ORIGIN.getX() + SIZE) >> 4) + 2;
+            for (int x = min; x <= max; x++)
+                for (int z = min; z <= max; z++)
+                {
+                    ChunkPrimer primer = new ChunkPrimer();
+                    for (int cx = 0; cx < 16; cx++)
+                        for (int cz = 0; cz < 16; cz++)
+                            for (int y = 0; y < GROUND; y++)
+                                primer.setBlockState(cx, y, cz, Blocks.STONE.getDefaultState());
+
+                    Chunk chunk = new Chunk(this, primer, x, z);
+                    chunk.generateSkylightMap();
+                    chunk.setTerrainPopulated(true);
+                    chunks.put(ChunkPos.asLong(x, z), chunk);
+                }
+        }
+
+        @Override
+        protected IChunkProvider createChunkProvider()
+        {
+            if (chunks == null)
+                chunks = new Long2ObjectOpenHashMap<>();
+
+            return new IChunkProvider()
+            {
+                @Nullable
+                @Override
+                public Chunk getLoadedChunk(int x, int z)
+                {
+                    return chunks.get(ChunkPos.asLong(x, z));
+                }
+
+                @Override
+                public Chunk provideChunk(int x, int z)
+                {
+                    Chunk chunk = getLoadedChunk(x, z);
+                    return chunk != null ? chunk : new EmptyChunk(TestWorld.this, x, z);
+                }
+
+                @Override
+                public boolean tick()
+                {
+                    return false;
+                }
+
+                @Override
+                public String makeString()
+                {
+                    return "TestChunkProvider";
+                }
+
+                @Override
+                public boolean isChunkGeneratedAt(int x, int z)
+                {
+                    return chunks.containsKey(ChunkPos.asLong(x, z));
+                }
+            };
+        }
+
+        @Override
+        protected boolean isChunkLoaded(int x, int z, boolean allowEmpty)
+        {
+            return chunks.containsKey(ChunkPos.asLong(x, z));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.world.gen.feature;
+
+import ivorius.ivtoolkit.math.AxisAlignedTransform2D;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.gen.structure.StructureBoundingBox;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plans and decorates from many threads at once, the way world generation does, and checks that every entry ends up
+ * complemented exactly once in every chunk it touches.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class WorldStructureGenerationDataTest
+{
+    public static final int THREADS = 8;
+    public static final int OPERATIONS = 20_000;
+
+    // Chunks from -RANGE until RANGE, spanning several regions on both sides of the origin
+    public static final int RANGE = 48;
+    public static final int MAX_SIZE = 6;
+
+    protected static StructureBoundingBox randomBoundingBox(Random random)
+    {
+        int minX = ((random.nextInt(2 * RANGE - MAX_SIZE) - RANGE) << 4) + random.nextInt(16);
+        int minZ = ((random.nextInt(2 * RANGE - MAX_SIZE) - RANGE) << 4) + random.nextInt(16);
+        int minY = random.nextInt(128);
+
+        return new StructureBoundingBox(minX, minY, minZ,
+                minX + random.nextInt(MAX_SIZE << 4), minY + random.nextInt(64), minZ + random.nextInt(MAX_SIZE << 4));
+    }
+
+    protected static ChunkPos randomChunk(Random random)
+    {
+        return new ChunkPos(random.nextInt(2 * RANGE) - RANGE, random.nextInt(2 * RANGE) - RANGE);
+    }
+
+    /**
+     * Like {@link WorldGenStructures#decorate}, without the generation.
+     *
+     * @return The entries to complement in the chunk.
+     */
+    protected static List<WorldStructureGenerationData.StructureEntry> decorate(WorldStructureGenerationData data, ChunkPos chunkPos)
+    {
+        List<WorldStructureGenerationData.StructureEntry> complement;
+        boolean checked;
+
+        Lock lock = data.lock(chunkPos);
+        lock.lock();
+        try
+        {
+            complement = data.structureEntriesIn(chunkPos).collect(Collectors.toList());
+            checked = data.checkChunk(chunkPos);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return checked ? complement : Collections.emptyList();
+    }
+
+    protected static void runConcurrently(Callable<Void> task) throws InterruptedException, ExecutionException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try
+        {
+            for (Future<Void> future : executor.invokeAll(Collections.nCopies(THREADS, task)))
+                future.get(); // Rethrows failures
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void concurrentEntriesAreComplementedOnce() throws Exception
+    {
+        WorldStructureGenerationData data = new WorldStructureGenerationData("test");
+
+        List<WorldStructureGenerationData.StructureEntry> added = Collections.synchronizedList(new ArrayList<>());
+        Map<ChunkPos, Set<UUID>> complemented = new ConcurrentHashMap<>();
+        Queue<String> duplicates = new ConcurrentLinkedQueue<>();
+
+        ConcurrentLinkedQueue<Integer> seeds = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < THREADS; i++)
+            seeds.add(i);
+
+        runConcurrently(() ->
+        {
+            Random random = new Random(seeds.poll());
+            for (int i = 0; i < OPERATIONS / THREADS; i++)
+            {
+                Collection<WorldStructureGenerationData.StructureEntry> complement;
+                Collection<ChunkPos> chunks;
+
+                if (random.nextInt(3) == 0)
+                {
+                    WorldStructureGenerationData.StructureEntry entry = WorldStructureGenerationData.StructureEntry.complete("structure" + random.nextInt(4), null,
+                            randomBoundingBox(random), AxisAlignedTransform2D.ORIGINAL, false);
+
+                    // Chunks that were checked before need to be complemented by the planner
+                    chunks = data.addEntry(entry);
+                    complement = Collections.singleton(entry);
+                    added.add(entry);
+                }
+                else
+                {
+                    ChunkPos chunkPos = randomChunk(random);
+                    chunks = Collections.singleton(chunkPos);
+                    complement = decorate(data, chunkPos);
+                }
+
+                // Interleave with readers that don't check anything
+                data.structureEntriesIn(randomChunk(random)).count();
+
+                for (ChunkPos chunk : chunks)
+                    for (WorldStructureGenerationData.StructureEntry entry : complement)
+                    {
+                        if (!complemented.computeIfAbsent(chunk, c -> ConcurrentHashMap.newKeySet()).add(entry.getUuid()))
+                            duplicates.add(entry.getUuid() + " in " + chunk);
+                    }
+            }
+
+            return null;
+        });
+
+        // Eventually, every chunk gets decorated
+        for (int x = -RANGE; x < RANGE; x++)
+            for (int z = -RANGE; z < RANGE; z++)
+            {
+                ChunkPos chunkPos = new ChunkPos(x, z);
+                for (WorldStructureGenerationData.StructureEntry entry : decorate(data, chunkPos))
+                {
+                    if (!complemented.computeIfAbsent(chunkPos, c -> ConcurrentHashMap.newKeySet()).add(entry.getUuid()))
+                        duplicates.add(entry.getUuid() + " in " + chunkPos);
+                }
+            }
+
+        assertTrue("Complemented more than once: " + duplicates, duplicates.isEmpty());
+
+        for (WorldStructureGenerationData.StructureEntry entry : added)
+            for (ChunkPos chunkPos : entry.rasterize())
+                assertTrue("Not complemented: " + entry.getUuid() + " in " + chunkPos, complemented.getOrDefault(chunkPos, Collections.emptySet()).contains(entry.getUuid()));
+    }
+
+    @Test
+    public void concurrentPlanningRespectsOverlapsAndLimits() throws Exception
+    {
+        WorldStructureGenerationData data = new WorldStructureGenerationData("test");
+        int limit = 20;
+
+        ConcurrentLinkedQueue<Integer> seeds = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < THREADS; i++)
+            seeds.add(i);
+
+        runConcurrently(() ->
+        {
+            Random random = new Random(seeds.poll());
+            for (int i = 0; i < OPERATIONS / THREADS; i++)
+            {
+                WorldStructureGenerationData.StructureEntry entry = WorldStructureGenerationData.StructureEntry.complete("structure" + random.nextInt(2), null,
+                        randomBoundingBox(random), AxisAlignedTransform2D.ORIGINAL, false);
+                data.tryAddEntry(entry, true, entry.getStructureID().equals("structure0") ? limit : null);
+            }
+
+            return null;
+        });
+
+        assertEquals(limit, data.countEntriesByID("structure0"));
+
+        List<WorldStructureGenerationData.StructureEntry> entries = new ArrayList<>(data.getEntriesByID("structure0"));
+        entries.addAll(data.getEntriesByID("structure1"));
+        assertTrue(entries.size() > limit);
+
+        for (int i = 0; i < entries.size(); i++)
+            for (int j = i + 1; j < entries.size(); j++)
+                assertFalse("Overlapping: " + entries.get(i).getUuid() + " and " + entries.get(j).getUuid(),
+                        entries.get(i).getBoundingBox().intersectsWith(entries.get(j).getBoundingBox()));
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.reccomplex.world.storage.loot;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import ivorius.ivtoolkit.random.WeightedSelector;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.WeightedRandom;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares rolling the shipped loot tables through their compiled form with the previous, interpreted way.
+ * Items are sticks; only the shape of the tables (components, items and weights) is taken from the files.
+ * <p>
+ * Created by lukas on 18.10.17.
+ */
+public class GenericLootTableTest
+{
+    public static final int ROLLS = 2_000_000;
+
+    @BeforeClass
+    public static void bootstrap()
+    {
+        Bootstrap.register();
+    }
+
+    protected static Collection<GenericLootTable> shippedTables() throws IOException, URISyntaxException
+    {
+        URL structures = GenericLootTableTest.class.getResource("/assets/reccomplex/structures");
+        assertNotNull("Shipped structures not on the class path", structures);
+
+        Map<String, GenericLootTable> tables = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(Paths.get(structures.toURI())))
+        {
+            for (Path path : files.filter(p -> p.toString().endsWith(".rcig")).collect(Collectors.toList()))
+            {
+                JsonObject json = new JsonParser().parse(new String(Files.readAllBytes(path), "UTF-8")).getAsJsonObject();
+                String name = path.getFileName().toString();
+                String tableID = json.has("inventoryGeneratorID") ? json.get("inventoryGeneratorID").getAsString() : name.substring(0, name.length() - 5);
+
+                List<GenericLootTable.RandomizedItemStack> items = new ArrayList<>();
+                if (json.has("items"))
+                {
+                    for (JsonElement item : json.getAsJsonArray("items"))
+                        items.add(new GenericLootTable.RandomizedItemStack(new ItemStack(Items.STICK), 1, 1, item.getAsJsonObject().get("weight").getAsDouble()));
+                }
+                if (json.has("contents")) // Legacy, see Component.Serializer
+                {
+                    for (JsonElement item : json.getAsJsonArray("contents"))
+                        items.add(new GenericLootTable.RandomizedItemStack(new ItemStack(Items.STICK), 1, 1, item.getAsJsonObject().get("weight").getAsDouble() / 100));
+                }
+
+                tables.computeIfAbsent(tableID, id -> new GenericLootTable()).components.add(new GenericLootTable.Component(tableID, items, ""));
+            }
+        }
+
+        assertFalse("No shipped loot tables found", tables.isEmpty());
+        return tables.values();
+    }
+
+    protected static ItemStack rollInterpreted(GenericLootTable table, Random random)
+    {
+        int max = 0;
+        for (GenericLootTable.Component component : table.components)
+        {
+            component.updateWeightCache();
+            max += component.itemWeight;
+        }
+
+        return max > 0
+                ? WeightedSelector.selectItem(random, WeightedRandom.getRandomItem(random, table.components, max).items).generateStack(random)
+                : ItemStack.EMPTY;
+    }
+
+    @Test
+    public void compiledRollsReachAllItems() throws IOException, URISyntaxException
+    {
+        for (GenericLootTable table : shippedTables())
+        {
+            table.compile();
+
+            // Every item with weight must come up, and nothing else
+            Set<GenericLootTable.RandomizedItemStack> expected = table.components.stream()
+                    .filter(c -> c.items.stream().anyMatch(i -> i.weight > 0))
+                    .flatMap(c -> c.items.stream()).filter(i -> i.weight > 0).collect(Collectors.toSet());
+
+            Random random = new Random(0);
+            Set<GenericLootTable.RandomizedItemStack> rolled = new HashSet<>();
+            for (int i = 0; i < expected.size() * 1000 && rolled.size() < expected.size(); i++)
+                rolled.add(table.compiled.select(random).select(random));
+
+            assertEquals(expected, rolled);
+        }
+    }
+
+    @Test
+    public void benchmarkRolls() throws IOException, URISyntaxException
+    {
+        List<GenericLootTable> tables = new ArrayList<>(shippedTables());
+        tables.forEach(GenericLootTable::compile);
+
+        // Warm up both paths before measuring
+        measure(tables, ROLLS / 10, GenericLootTableTest::rollInterpreted);
+        measure(tables, ROLLS / 10, (t, r) -> t.getRandomItemStack(null, r));
+
+        double interpreted = measure(tables, ROLLS, GenericLootTableTest::rollInterpreted);
+        double compiled = measure(tables, ROLLS, (t, r) -> t.getRandomItemStack(null, r));
+
+        System.out.println(String.format("Rolls on %d shipped loot tables: %.0f/s interpreted, %.0f/s compiled (%.1fx)",
+                tables.size(), interpreted, compiled, compiled / interpreted));
+    }
+
+    protected static double measure(List<GenericLootTable> tables, int rolls, Roll roll)
+    {
+        Random random = new Random(0);
+        int nonEmpty = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rolls; i++)
+        {
+            if (!roll.roll(tables.get(i % tables.size()), random).isEmpty())
+                nonEmpty++;
+        }
+        long time = System.nanoTime() - start;
+
+        assertEquals(rolls, nonEmpty); // Also keeps the rolls from being optimized away
+        return rolls / (time / 1e9);
+    }
+
+    protected interface Roll
+    {
+        ItemStack roll(GenericLootTable table, Random random);
+    }
+}